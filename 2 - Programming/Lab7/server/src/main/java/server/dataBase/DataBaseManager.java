@@ -21,18 +21,62 @@ public class DataBaseManager {
     private final QueryManager queryManager = new QueryManager();
     private final PasswordManager passwordManager = new PasswordManager();
     private final ReentrantLock lock = new ReentrantLock();
+    private static final String DB_URL = "jdbc:postgresql://localhost:5432/studs";
 
-    public static Connection connect() {
+    /** Пул соединений, создаётся при первом обращении, когда учётные данные уже прочитаны {@link FileReader}. */
+    private static volatile ConnectionPool pool;
+
+    static {
         installLogger();
+    }
+
+    /**
+     * Выдаёт соединение из пула. Закрытие соединения возвращает его в пул.
+     *
+     * @return соединение или null, если подключиться не удалось
+     */
+    public static Connection connect() {
         try {
-            Class.forName("org.postgresql.Driver");
-            return DriverManager.getConnection("jdbc:postgresql://localhost:5432/studs", FileReader.getUser(), FileReader.getPassword());
-        } catch (SQLException | ClassNotFoundException e) {
+            return getPool().getConnection();
+        } catch (SQLException e) {
             logger.warning("Ошибка при подключении к базе данных: " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Возвращает пул соединений, создавая его при первом вызове.
+     * Размер и таймауты задаются свойствами db.pool.size, db.pool.maxWaitMs и db.pool.idleTimeoutMs.
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DataBaseManager.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(DB_URL, FileReader.getUser(), FileReader.getPassword(),
+                            Integer.getInteger("db.pool.size", 8),
+                            Long.getLong("db.pool.maxWaitMs", 5000L),
+                            Long.getLong("db.pool.idleTimeoutMs", 60000L));
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Закрывает пул соединений при остановке сервера.
+     */
+    public static void shutdown() {
+        synchronized (DataBaseManager.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
     public LinkedList<Person> loadCache(String user_login, LinkedList<Person> collection) {
         lock.lock();
         try {
@@ -0,0 +1,212 @@
+package server.serverUtil;
+
+import shared.dto.Request;
+import shared.dto.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Конвейер обработки запросов из трёх стадий: десериализация, выполнение команды и сериализация ответа.
+ * Каждая стадия — свой пул потоков фиксированного размера с ограниченной очередью, стадии передают
+ * друг другу задачи без блокирующего ожидания. Готовый ответ кладётся в очередь завершённых,
+ * которую разбирает поток селектора, а сам селектор будится через {@link Selector#wakeup()}.
+ * Число запросов в конвейере ограничено: пока он заполнен, {@link ServerApp} не читает новые запросы.
+ */
+public class RequestPipeline {
+    private final Logger logger;
+    private final CommandDispatcher dispatcher;
+    private final Selector selector;
+
+    private final ThreadPoolExecutor decodePool;
+    private final ThreadPoolExecutor executePool;
+    private final ThreadPoolExecutor encodePool;
+
+    /** Максимальное число запросов, одновременно находящихся в конвейере. */
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Completed> completed = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Создаёт конвейер. Размеры стадий задаются свойствами server.decodeThreads, server.commandThreads
+     * и server.encodeThreads, ограничение на число запросов — свойством server.maxInFlight.
+     *
+     * @param dispatcher диспетчер команд
+     * @param selector селектор, который нужно будить при готовности ответа
+     * @param logger логгер сервера
+     */
+    public RequestPipeline(CommandDispatcher dispatcher, Selector selector, Logger logger) {
+        this.dispatcher = dispatcher;
+        this.selector = selector;
+        this.logger = logger;
+        this.maxInFlight = Integer.getInteger("server.maxInFlight", 256);
+        this.decodePool = stage("decode", Integer.getInteger("server.decodeThreads", 2));
+        this.executePool = stage("command", Integer.getInteger("server.commandThreads", 4));
+        this.encodePool = stage("encode", Integer.getInteger("server.encodeThreads", 2));
+    }
+
+    private ThreadPoolExecutor stage(String name, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxInFlight), factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @return true, если конвейер заполнен и новые запросы принимать нельзя
+     */
+    public boolean isSaturated() {
+        return inFlight.get() >= maxInFlight;
+    }
+
+    /**
+     * @return true, если конвейер разгружен настолько, что чтение можно возобновить
+     */
+    public boolean hasCapacity() {
+        return inFlight.get() <= maxInFlight / 2;
+    }
+
+    /** @return число запросов в конвейере */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Ставит прочитанный кадр в конвейер. Вызывается из потока селектора и не блокируется.
+     *
+     * @param key ключ клиентского канала
+     * @param bytes сериализованный запрос без префикса длины
+     */
+    public void submit(SelectionKey key, byte[] bytes) {
+        inFlight.incrementAndGet();
+        handOff(decodePool, key, () -> decode(key, bytes));
+    }
+
+    private void decode(SelectionKey key, byte[] bytes) {
+        Object obj;
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            obj = ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            logger.warning("Ошибка десериализации запроса: " + e.getMessage());
+            encode(key, new Response(false, "Ошибка обработки данных: " + e.getMessage()));
+            return;
+        } catch (RuntimeException | Error e) {
+            // Кадр не разобрать и не ответить на него осмысленно: соединение закрывается, место в конвейере освобождается
+            logger.warning("Недопустимый кадр от " + ServerApp.getRemoteAddress(key) + ", соединение закрывается: " + e);
+            complete(key, null);
+            return;
+        }
+        if (!(obj instanceof Request request)) {
+            logger.warning("Некорректный объект от клиента " + ServerApp.getRemoteAddress(key));
+            encode(key, new Response(false, "Неверный запрос"));
+            return;
+        }
+        logger.info("Запрос " + request.getType() + " от " + ServerApp.getRemoteAddress(key));
+        handOff(executePool, key, () -> execute(key, request));
+    }
+
+    private void execute(SelectionKey key, Request request) {
+        Response response;
+        try {
+            logger.info("Обработка команды " + request.getType() + " в потоке " + Thread.currentThread().getName());
+            response = dispatcher.dispatch(request);
+            logger.info("Команда " + request.getType() + " успешно обработана");
+        } catch (Exception e) {
+            logger.severe("Ошибка обработки команды " + request.getType() + ": " + e.getMessage());
+            response = new Response(false, "Ошибка обработки: " + e.getMessage());
+        } catch (Error e) {
+            logger.severe("Сбой выполнения команды " + request.getType() + ", соединение закрывается: " + e);
+            complete(key, null);
+            return;
+        }
+        Response result = response;
+        handOff(encodePool, key, () -> encode(key, result));
+    }
+
+    private void encode(SelectionKey key, Response response) {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(response);
+            oos.flush();
+            complete(key, baos.toByteArray());
+        } catch (IOException | RuntimeException | Error e) {
+            logger.warning("Ошибка сериализации ответа: " + e);
+            complete(key, null);
+        }
+    }
+
+    /**
+     * Передаёт задачу следующей стадии. Очереди стадий не меньше предела конвейера,
+     * поэтому отказ возможен только после остановки; тогда запрос завершается без ответа.
+     */
+    private void handOff(ExecutorService stage, SelectionKey key, Runnable task) {
+        try {
+            stage.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warning("Стадия конвейера не приняла запрос: " + e.getMessage());
+            complete(key, null);
+        }
+    }
+
+    private void complete(SelectionKey key, byte[] data) {
+        inFlight.decrementAndGet();
+        completed.add(new Completed(key, data));
+        selector.wakeup();
+    }
+
+    /**
+     * @return следующий готовый ответ или null, если готовых нет
+     */
+    public Completed poll() {
+        return completed.poll();
+    }
+
+    /**
+     * Останавливает все стадии, дожидаясь завершения уже принятых запросов.
+     */
+    public void shutdown() {
+        for (ThreadPoolExecutor stage : new ThreadPoolExecutor[]{decodePool, executePool, encodePool}) {
+            stage.shutdown();
+            try {
+                if (!stage.awaitTermination(5, TimeUnit.SECONDS)) {
+                    stage.shutdownNow();
+                    logger.warning("Принудительное завершение стадии конвейера");
+                }
+            } catch (InterruptedException e) {
+                stage.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Готовый ответ: ключ клиента и сериализованный ответ (null, если ответ получить не удалось).
+     */
+    public static class Completed {
+        final SelectionKey key;
+        final byte[] data;
+
+        Completed(SelectionKey key, byte[] data) {
+            this.key = key;
+            this.data = data;
+        }
+    }
+}
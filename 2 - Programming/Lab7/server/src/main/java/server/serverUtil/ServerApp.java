@@ -1,11 +1,10 @@
 package server.serverUtil;
 
 import server.collection.CollectionManager;
+import server.dataBase.DataBaseManager;
 import server.dataBase.FileReader;
 import server.logger.ColorFormatter;
 import server.logger.DbColorFormatter;
-import shared.dto.Request;
-import shared.dto.Response;
 
 import java.io.*;
 import java.net.InetSocketAddress;
@@ -14,9 +13,12 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
-import java.util.concurrent.*;
 import java.util.logging.*;
 
 /**
@@ -32,8 +34,14 @@ public class ServerApp {
     /** Логгер для записи событий сервера. */
     public static final Logger logger = Logger.getLogger(ServerApp.class.getName());
 
-    private final ForkJoinPool writePool = new ForkJoinPool();
-    ExecutorService commandPool = Executors.newFixedThreadPool(4);
+    /** Конвейер декодирования, выполнения и кодирования запросов. */
+    private RequestPipeline pipeline;
+    /** Прочитанные запросы, отложенные, пока конвейер заполнен. */
+    private final Deque<PendingFrame> deferred = new ArrayDeque<>();
+    /** Ключи, у которых снято чтение из-за заполненного конвейера. */
+    private final List<SelectionKey> pausedKeys = new ArrayList<>();
+    /** Флаг, указывающий, что чтение новых запросов приостановлено. */
+    private boolean readsPaused = false;
 
     /**
      * Внутренний класс для хранения состояния клиентского соединения.
@@ -45,6 +53,21 @@ public class ServerApp {
         ByteBuffer dataBuffer = null;
         /** Длина ожидаемых данных в байтах. */
         int dataLength = -1;
+        /** Очередь отправки: префиксы длины и тела ответов, ещё не принятые ядром. */
+        final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+    }
+
+    /**
+     * Прочитанный, но ещё не поставленный в конвейер запрос.
+     */
+    private static class PendingFrame {
+        final SelectionKey key;
+        final byte[] bytes;
+
+        PendingFrame(SelectionKey key, byte[] bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
     }
 
     /** Менеджер коллекции для управления данными. */
@@ -107,12 +130,11 @@ public class ServerApp {
                             }
                         }
                     }
+                    drainCompleted();
                     processConsoleInput();
 
                 } catch (IOException e) {
                     logger.severe("Ошибка сервера: " + e.getMessage());
-                } catch (ClassNotFoundException e) {
-                    logger.severe("Ошибка десериализации: " + e.getMessage());
                 }
             }
             closeResources();
@@ -134,6 +156,7 @@ public class ServerApp {
         serverChannel.bind(new InetSocketAddress(PORT));
         selector = Selector.open();
         serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        pipeline = new RequestPipeline(dispatcher, selector, logger);
         logger.info("Сервер запущен на порту " + PORT);
         connectionProblem = false;
     }
@@ -152,19 +175,21 @@ public class ServerApp {
             return;
         }
         clientChannel.configureBlocking(false);
-        SelectionKey clientKey = clientChannel.register(selector, SelectionKey.OP_READ);
+        SelectionKey clientKey = clientChannel.register(selector, readsPaused ? 0 : SelectionKey.OP_READ);
         clientKey.attach(new ClientState());
+        if (readsPaused) {
+            pausedKeys.add(clientKey);
+        }
         logger.info("Подключён клиент: " + getRemoteAddress(clientChannel));
     }
 
     /**
-     * Читает запрос от клиента, десериализует его и передает в диспетчер.
+     * Читает кадр запроса от клиента и передаёт его в конвейер {@link RequestPipeline}.
      *
      * @param key ключ селектора для клиентского канала
      * @throws IOException если произошла ошибка чтения
-     * @throws ClassNotFoundException если не удалось десериализовать объект
      */
-    private void readRequest(SelectionKey key) throws IOException, ClassNotFoundException {
+    private void readRequest(SelectionKey key) throws IOException {
         if (!key.isValid()) {
             logger.warning("Чтение с невалидного ключа");
             return;
@@ -210,50 +235,100 @@ public class ServerApp {
             state.dataBuffer = null;
             state.dataLength = -1;
 
-            Runnable readTask = () -> {
-                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
-                    Object obj = ois.readObject();
-                    if (!(obj instanceof Request request)) {
-                        logger.warning("Некорректный объект от клиента " + getRemoteAddress(clientChannel));
-                        key.attach(new Response(false, "Неверный запрос"));
-                        key.interestOps(SelectionKey.OP_WRITE);
-                        return;
-                    }
+            // Пока запрос клиента в обработке, следующие от него не читаются
+            key.interestOps(0);
+            if (pipeline.isSaturated()) {
+                deferred.add(new PendingFrame(key, bytes));
+                pauseReading();
+            } else {
+                pipeline.submit(key, bytes);
+            }
+        }
+    }
 
-                    logger.info("Запрос " + request.getType() + " от " + getRemoteAddress(clientChannel) +
-                            " в потоке " + Thread.currentThread().getId());
-
-                    Callable<Response> commandTask = () -> {
-                        logger.info("Обработка команды " + request.getType() + " в потоке " +
-                                Thread.currentThread().getId());
-                        try {
-                            Response response = dispatcher.dispatch(request);
-                            logger.info("Команда " + request.getType() + " успешно обработана");
-                            return response;
-                        } catch (Exception e) {
-                            logger.severe("Ошибка обработки команды " + request.getType() + ": " + e.getMessage());
-                            return new Response(false, "Ошибка обработки: " + e.getMessage());
-                        }
-                    };
+    /**
+     * Разбирает готовые ответы конвейера и переключает их ключи на запись,
+     * затем ставит в конвейер отложенные запросы и при появлении места возобновляет чтение.
+     * Вызывается только из потока селектора.
+     */
+    private void drainCompleted() {
+        RequestPipeline.Completed done;
+        while ((done = pipeline.poll()) != null) {
+            SelectionKey key = done.key;
+            if (!key.isValid()) {
+                continue;
+            }
+            if (done.data == null) {
+                closeClient((SocketChannel) key.channel(), key);
+                continue;
+            }
+            enqueueResponse(key, done.data);
+        }
+        while (!deferred.isEmpty() && !pipeline.isSaturated()) {
+            PendingFrame frame = deferred.poll();
+            if (frame.key.isValid()) {
+                pipeline.submit(frame.key, frame.bytes);
+            }
+        }
+        if (readsPaused && deferred.isEmpty() && pipeline.hasCapacity()) {
+            resumeReading();
+        }
+    }
 
-                    Future<Response> future = commandPool.submit(commandTask);
-                    Response response = future.get();
+    /**
+     * Снимает OP_READ со всех клиентов, пока конвейер заполнен: данные остаются в буферах ядра,
+     * и клиенты упираются в управление потоком TCP, а не в память сервера.
+     */
+    private void pauseReading() {
+        if (readsPaused) {
+            return;
+        }
+        readsPaused = true;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && (key.interestOps() & SelectionKey.OP_READ) != 0) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                pausedKeys.add(key);
+            }
+        }
+        logger.warning("Конвейер заполнен (" + pipeline.getInFlight() + " запросов), чтение приостановлено");
+    }
 
-                    key.attach(response);
-                    key.interestOps(SelectionKey.OP_WRITE);
-                } catch (Exception e) {
-                    logger.warning("Ошибка десериализации или обработки запроса: " + e.getMessage());
-                    key.attach(new Response(false, "Ошибка обработки данных: " + e.getMessage()));
-                    key.interestOps(SelectionKey.OP_WRITE);
-                }
-            };
+    /**
+     * Возвращает OP_READ клиентам, у которых чтение было приостановлено.
+     */
+    private void resumeReading() {
+        readsPaused = false;
+        for (SelectionKey key : pausedKeys) {
+            if (key.isValid() && key.interestOps() == 0) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+        pausedKeys.clear();
+        logger.info("Чтение запросов возобновлено");
+    }
 
-            new Thread(readTask).start();
+    /**
+     * Ставит ответ в очередь отправки клиента и сразу пытается его записать.
+     *
+     * @param key ключ клиентского канала
+     * @param data сериализованный ответ без префикса длины
+     */
+    private void enqueueResponse(SelectionKey key, byte[] data) {
+        ClientState state = (ClientState) key.attachment();
+        ByteBuffer length = ByteBuffer.allocate(4).putInt(data.length);
+        length.flip();
+        state.outbound.add(length);
+        state.outbound.add(ByteBuffer.wrap(data));
+        try {
+            flush(key);
+        } catch (IOException e) {
+            logger.warning("Ошибка отправки ответа: " + e.getMessage());
+            closeClient((SocketChannel) key.channel(), key);
         }
     }
 
     /**
-     * Синхронно отправляет ответ клиенту используя ForkJoinPool {@link WriteThread}, сериализуя объект {@link Response}.
+     * Дописывает очередь отправки, когда канал снова готов к записи.
      *
      * @throws IOException если произошла ошибка записи
      */
@@ -262,20 +337,47 @@ public class ServerApp {
             logger.warning("Запись в невалидный ключ");
             return;
         }
+        try {
+            flush(key);
+        } catch (IOException e) {
+            logger.warning("Ошибка отправки ответа: " + e.getMessage());
+            closeClient((SocketChannel) key.channel(), key);
+        }
+    }
 
+    /**
+     * Записывает из очереди отправки столько, сколько примет ядро, одним сборным write:
+     * префикс длины и тело уходят вместе. Если записано не всё, остаётся OP_WRITE,
+     * и запись продолжится при следующей готовности канала; селектор при этом не блокируется.
+     * Когда очередь опустела, клиенту снова разрешается чтение.
+     *
+     * @throws IOException если произошла ошибка записи
+     */
+    private void flush(SelectionKey key) throws IOException {
         SocketChannel clientChannel = (SocketChannel) key.channel();
-        Object attachment = key.attachment();
-        if (!(attachment instanceof Response response)) {
-            logger.warning("Нет ответа для клиента");
-            closeClient(clientChannel, key);
-            return;
+        Deque<ByteBuffer> outbound = ((ClientState) key.attachment()).outbound;
+        while (!outbound.isEmpty()) {
+            ByteBuffer[] buffers = outbound.toArray(new ByteBuffer[0]);
+            long written = clientChannel.write(buffers);
+            while (!outbound.isEmpty() && !outbound.peekFirst().hasRemaining()) {
+                outbound.pollFirst();
+            }
+            if (written == 0 && !outbound.isEmpty()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        logger.fine("Ответ отправлен " + getRemoteAddress(clientChannel));
+        if (readsPaused) {
+            key.interestOps(0);
+            pausedKeys.add(key);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
         }
-        WriteThread writeThread = new WriteThread(clientChannel, logger, key, response);
-        writePool.invoke(writeThread);
     }
 
     /**
-     * Обрабатывает консольный ввод для админ-команд (например, "exit").
+     * Обрабатывает консольный ввод для админ-команд ("exit", "pool" — статистика пула соединений).
      */
     private void processConsoleInput() {
         try {
@@ -288,6 +390,9 @@ public class ServerApp {
                     closeResources();
                     running = false;
                 }
+                if (line.equalsIgnoreCase("pool")) {
+                    System.out.println(DataBaseManager.getPool().stats());
+                }
             }
         } catch (IOException e) {
             logger.warning("Ошибка чтения админ-команды: " + e.getMessage());
@@ -305,28 +410,10 @@ public class ServerApp {
             if (selector != null && selector.isOpen()) {
                 selector.close();
             }
-            commandPool.shutdown();
-            try {
-                if (!commandPool.awaitTermination(5, TimeUnit.SECONDS)) {
-                    commandPool.shutdownNow();
-                    logger.warning("Принудительное завершение commandPool");
-                }
-            } catch (InterruptedException e) {
-                commandPool.shutdownNow();
-                Thread.currentThread().interrupt();
-                logger.severe("Прерывание при завершении commandPool: " + e.getMessage());
-            }
-            writePool.shutdown();
-            try {
-                if (!writePool.awaitTermination(5, TimeUnit.SECONDS)) {
-                    writePool.shutdownNow();
-                    logger.warning("Принудительное завершение writePool");
-                }
-            } catch (InterruptedException e) {
-                writePool.shutdownNow();
-                Thread.currentThread().interrupt();
-                logger.severe("Прерывание при завершении writePool: " + e.getMessage());
+            if (pipeline != null) {
+                pipeline.shutdown();
             }
+            DataBaseManager.shutdown();
         } catch (IOException e) {
             logger.severe("Ошибка при закрытии ресурсов: " + e.getMessage());
         }
@@ -389,4 +476,11 @@ public class ServerApp {
             return "unknown";
         }
     }
+
+    /**
+     * Возвращает адрес удаленного клиента по ключу селектора.
+     */
+    static String getRemoteAddress(SelectionKey key) {
+        return getRemoteAddress((SocketChannel) key.channel());
+    }
 }
\ No newline at end of file
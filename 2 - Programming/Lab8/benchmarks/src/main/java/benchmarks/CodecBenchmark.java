@@ -0,0 +1,179 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import shared.codec.BinaryCodec;
+import shared.codec.DeflateCodec;
+import shared.codec.SerializationCodec;
+import shared.codec.WireCodec;
+import shared.dto.CommandType;
+import shared.dto.Request;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+import shared.model.Coordinates;
+import shared.model.Info;
+import shared.model.Location;
+import shared.model.Person;
+import shared.model.enums.Color;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение кодеков кадров: сериализация Java и {@link BinaryCodec}, каждый также со сжатием {@link DeflateCodec}.
+ * Перед запуском JMH печатает размер тела кадра в байтах для типичных сообщений,
+ * затем измеряет время кодирования и декодирования в нс на операцию.
+ *
+ * Запуск: java -cp benchmarks.jar benchmarks.CodecBenchmark [параметры JMH]
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+    /** Число объектов в ответе с коллекцией. */
+    private static final int PEOPLE = 100;
+
+    @Param({"serialization", "binary", "serialization+deflate", "binary+deflate"})
+    public String codecName;
+
+    private WireCodec codec;
+    private Request addRequest;
+    private Response refreshResponse;
+    private byte[] addRequestBytes;
+    private byte[] refreshResponseBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        codec = codec(codecName);
+        addRequest = addRequest();
+        refreshResponse = refreshResponse(PEOPLE);
+        addRequestBytes = encode(codec, addRequest);
+        refreshResponseBytes = encode(codec, refreshResponse);
+    }
+
+    @Benchmark
+    public byte[] encodeAddRequest() throws IOException {
+        return encode(codec, addRequest);
+    }
+
+    @Benchmark
+    public Request decodeAddRequest() throws IOException {
+        return codec.readRequest(new ByteArrayInputStream(addRequestBytes));
+    }
+
+    @Benchmark
+    public byte[] encodeRefreshResponse() throws IOException {
+        return encode(codec, refreshResponse);
+    }
+
+    @Benchmark
+    public Response decodeRefreshResponse() throws IOException {
+        return codec.readResponse(new ByteArrayInputStream(refreshResponseBytes));
+    }
+
+    public static void main(String[] args) throws Exception {
+        printSizes();
+        org.openjdk.jmh.Main.main(args.length > 0 ? args : new String[]{CodecBenchmark.class.getSimpleName()});
+    }
+
+    /**
+     * Печатает размер тела кадра для каждого кодека.
+     */
+    private static void printSizes() throws IOException {
+        Object[][] messages = {
+                {"INFO request", new Request(CommandType.INFO, new Object[]{"user1"})},
+                {"ADD request", addRequest()},
+                {"OK message", new Response(ResponseStatus.OK, "Объект успешно добавлен", CommandType.ADD)},
+                {"INFO response", new Response(ResponseStatus.OK, new Info(PEOPLE, "LinkedList", LocalDateTime.now(), 7), CommandType.INFO)},
+                {"REFRESH x" + PEOPLE, refreshResponse(PEOPLE)},
+                {"SHOW x" + PEOPLE, showResponse(PEOPLE)},
+        };
+        String[] names = {"serialization", "binary", "serialization+deflate", "binary+deflate"};
+        System.out.printf("%-16s", "message");
+        for (String name : names) {
+            System.out.printf(" %22s", name);
+        }
+        System.out.println();
+        for (Object[] message : messages) {
+            System.out.printf("%-16s", message[0]);
+            for (String name : names) {
+                System.out.printf(" %22d", size(codec(name), message[1]));
+            }
+            System.out.println();
+        }
+        System.out.println();
+    }
+
+    private static int size(WireCodec codec, Object message) throws IOException {
+        return message instanceof Request request
+                ? encode(codec, request).length
+                : encode(codec, (Response) message).length;
+    }
+
+    private static byte[] encode(WireCodec codec, Request request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        codec.writeRequest(request, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] encode(WireCodec codec, Response response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        codec.writeResponse(response, out);
+        return out.toByteArray();
+    }
+
+    private static WireCodec codec(String name) {
+        WireCodec base = name.startsWith("binary") ? BinaryCodec.INSTANCE : SerializationCodec.INSTANCE;
+        return name.endsWith("+deflate") ? DeflateCodec.over(base) : base;
+    }
+
+    private static Request addRequest() {
+        Request request = new Request(CommandType.ADD, new Object[]{person(0), "user1"});
+        request.setRequestId(42);
+        return request;
+    }
+
+    private static Response refreshResponse(int count) {
+        LinkedList<Person> people = new LinkedList<>();
+        for (int i = 0; i < count; i++) {
+            people.add(person(i));
+        }
+        Response response = new Response(ResponseStatus.REFRESH, "Объект успешно добавлен", CommandType.ADD, people);
+        response.setRequestId(42);
+        return response;
+    }
+
+    private static Response showResponse(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(person(i)).append('\n');
+        }
+        Response response = new Response(ResponseStatus.OK, text.toString(), CommandType.SHOW);
+        response.setRequestId(42);
+        return response;
+    }
+
+    private static Person person(int i) {
+        Person person = new Person("Person " + i, new Coordinates(i % 60, i * 0.5), 150 + i % 50, 60 + i % 40,
+                "P" + (100000 + i), Color.values()[i % Color.values().length],
+                new Location(i * 1.5, i * 0.25f, i), "user" + (i % 10));
+        person.setId(i + 1);
+        return person;
+    }
+}
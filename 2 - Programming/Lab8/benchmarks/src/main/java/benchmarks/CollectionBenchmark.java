@@ -0,0 +1,96 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.collection.CollectionManager;
+import shared.model.Info;
+import shared.model.Person;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции {@link CollectionManager} над кэшем из 1 тыс., 100 тыс. и 1 млн объектов.
+ * База данных заменена {@link InMemoryDataBaseManager}, поэтому измеряется только работа кэша:
+ * блокировки, индексы хранилища и журнал изменений.
+ *
+ * Запуск: java -cp benchmarks.jar benchmarks.CollectionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Dserver.logLevel=WARNING"})
+public class CollectionBenchmark {
+    /** Число владельцев объектов; измеряемые операции выполняет один из них. */
+    private static final int OWNERS = 100;
+    private static final String USER = "user1";
+
+    @Param({"1000", "100000", "1000000"})
+    public int people;
+
+    private CollectionManager cm;
+    /** id объекта пользователя USER, который перезаписывается в {@link #updateId()}. */
+    private long ownedId;
+    private int next;
+
+    @Setup
+    public void setup() {
+        cm = new CollectionManager(InMemoryDataBaseManager.withPeople(people, OWNERS));
+        cm.loadCollection();
+        ownedId = 2;
+        next = people;
+    }
+
+    @Benchmark
+    public Info info() {
+        return cm.info(USER);
+    }
+
+    @Benchmark
+    public String averageOfHeight() {
+        return cm.averageOfHeight(USER);
+    }
+
+    @Benchmark
+    public String head() {
+        return cm.head(USER);
+    }
+
+    @Benchmark
+    public String printFieldAscendingHeight() {
+        return cm.printFieldAscendingHeight(USER);
+    }
+
+    /** add_if_max с объектом ниже максимума: проверка по индексу роста без записи. */
+    @Benchmark
+    public String addIfMaxRejected() {
+        return cm.addIfMax(InMemoryDataBaseManager.person(0, USER), USER);
+    }
+
+    /** Добавление и удаление того же объекта, чтобы размер коллекции не менялся между итерациями. */
+    @Benchmark
+    public String addThenRemove() {
+        Person person = InMemoryDataBaseManager.person(next++, USER);
+        cm.add(person, USER);
+        return cm.removeById(person.getId(), USER);
+    }
+
+    @Benchmark
+    public String updateId() {
+        return cm.updateId(ownedId, InMemoryDataBaseManager.person(next++, USER), USER);
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args.length > 0 ? args : new String[]{CollectionBenchmark.class.getSimpleName()});
+    }
+}
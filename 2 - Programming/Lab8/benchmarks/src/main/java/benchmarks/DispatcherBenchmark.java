@@ -0,0 +1,83 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.collection.CollectionManager;
+import server.serverUtil.CommandDispatcher;
+import shared.dto.CommandType;
+import shared.dto.Request;
+import shared.dto.Response;
+import shared.model.Person;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CommandDispatcher#dispatch} для типичных запросов клиента над кэшем из 10 тыс. объектов,
+ * включая разбор аргументов, хуки и приложение изменений коллекции к ответу.
+ * База данных заменена {@link InMemoryDataBaseManager}.
+ *
+ * Запуск: java -cp benchmarks.jar benchmarks.DispatcherBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dserver.logLevel=WARNING")
+public class DispatcherBenchmark {
+    private static final int PEOPLE = 10_000;
+    private static final String USER = "user1";
+
+    private CommandDispatcher dispatcher;
+    private Request info;
+    private Request averageOfHeight;
+    private Request authenticate;
+    private int next = PEOPLE;
+
+    @Setup
+    public void setup() {
+        CollectionManager cm = new CollectionManager(InMemoryDataBaseManager.withPeople(PEOPLE, 100));
+        cm.loadCollection();
+        dispatcher = new CommandDispatcher(cm);
+        info = new Request(CommandType.INFO, new Object[]{USER});
+        averageOfHeight = new Request(CommandType.AVERAGE_OF_HEIGHT, new Object[]{USER});
+        authenticate = new Request(CommandType.AUTHENTICATE,
+                new Object[]{USER, "password", false});
+    }
+
+    @Benchmark
+    public Response info() {
+        return dispatcher.dispatch(info);
+    }
+
+    @Benchmark
+    public Response averageOfHeight() {
+        return dispatcher.dispatch(averageOfHeight);
+    }
+
+    /** Вход без коллекции в ответе: хеширование пароля и проверка по таблице пользователей. */
+    @Benchmark
+    public Response authenticate() {
+        return dispatcher.dispatch(authenticate);
+    }
+
+    /** ADD и REMOVE_BY_ID того же объекта, как их присылает клиент. */
+    @Benchmark
+    public Response addThenRemove() {
+        Person person = InMemoryDataBaseManager.person(next++, USER);
+        dispatcher.dispatch(new Request(CommandType.ADD, new Object[]{person, USER}));
+        return dispatcher.dispatch(new Request(CommandType.REMOVE_BY_ID, new Object[]{person.getId(), USER}));
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args.length > 0 ? args : new String[]{DispatcherBenchmark.class.getSimpleName()});
+    }
+}
@@ -0,0 +1,135 @@
+package benchmarks;
+
+import server.dataBase.DataBaseManager;
+import server.dataBase.PasswordManager;
+import server.dataBase.WriteResult;
+import shared.dto.CommandType;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+import shared.dto.User;
+import shared.model.Coordinates;
+import shared.model.Location;
+import shared.model.Person;
+import shared.model.enums.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Заглушка слоя базы данных для бенчмарков: таблицы People и Users хранятся в памяти,
+ * поэтому {@link server.collection.CollectionManager} и команды измеряются без PostgreSQL.
+ * Повторяет смысл ответов настоящего {@link DataBaseManager}: условие на владельца, коды {@link WriteResult},
+ * хеширование паролей через {@link PasswordManager}.
+ */
+public class InMemoryDataBaseManager extends DataBaseManager {
+    private final Map<Long, Person> people = new ConcurrentHashMap<>();
+    private final Map<String, String> users = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final PasswordManager passwordManager = new PasswordManager();
+
+    /**
+     * @param count число объектов в таблице People
+     * @param owners число владельцев; объект i принадлежит пользователю "user" + (i % owners)
+     * @return заглушка с заполненной таблицей и зарегистрированными владельцами с паролем "password"
+     */
+    public static InMemoryDataBaseManager withPeople(int count, int owners) {
+        InMemoryDataBaseManager db = new InMemoryDataBaseManager();
+        for (int i = 0; i < count; i++) {
+            Person person = person(i, "user" + (i % owners));
+            person.setId(db.nextId.incrementAndGet());
+            db.people.put(person.getId(), person);
+        }
+        for (int i = 0; i < owners; i++) {
+            db.users.put("user" + i, db.passwordManager.hashPassword("password"));
+        }
+        return db;
+    }
+
+    /**
+     * @return новый объект с полями, зависящими от номера; id не задан
+     */
+    public static Person person(int i, String owner) {
+        return new Person("Person " + i, new Coordinates(i % 60, (i % 800) * 0.5), 150 + i % 50, 60 + i % 40,
+                "P" + (100000 + i), Color.values()[i % Color.values().length],
+                new Location(i * 1.5, i * 0.25f, i), owner);
+    }
+
+    @Override
+    public int streamPeople(String user_login, Consumer<Person> sink) {
+        int count = 0;
+        for (Person person : people.values()) {
+            if (user_login == null || user_login.equals(person.getUserLogin())) {
+                sink.accept(person);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Long addPerson(Person person, String login) {
+        long id = nextId.incrementAndGet();
+        people.put(id, person);
+        return id;
+    }
+
+    @Override
+    public List<Long> addPersons(List<Person> persons, String login) {
+        List<Long> ids = new ArrayList<>(persons.size());
+        for (Person person : persons) {
+            ids.add(addPerson(person, login));
+        }
+        return ids;
+    }
+
+    @Override
+    public WriteResult updatePerson(long id, Person newPerson, String login) {
+        Person old = people.get(id);
+        if (old == null || !login.equals(old.getUserLogin())) {
+            return WriteResult.NOT_FOUND;
+        }
+        people.put(id, newPerson);
+        return WriteResult.OK;
+    }
+
+    @Override
+    public WriteResult removePerson(long id, String login) {
+        Person old = people.get(id);
+        if (old == null || !login.equals(old.getUserLogin())) {
+            return WriteResult.NOT_FOUND;
+        }
+        people.remove(id);
+        return WriteResult.OK;
+    }
+
+    @Override
+    public boolean clear(String login) {
+        people.values().removeIf(person -> login.equals(person.getUserLogin()));
+        return true;
+    }
+
+    @Override
+    public Response registration(User user) {
+        String hash = passwordManager.hashPassword(user.getPassword());
+        if (users.putIfAbsent(user.getLogin(), hash) != null) {
+            return new Response(ResponseStatus.ERROR, "UserExists", CommandType.REGISTRATION);
+        }
+        return new Response(ResponseStatus.OK, "SuccessRegister", CommandType.REGISTRATION, user);
+    }
+
+    @Override
+    public Response authenticate(String login, String password) {
+        String storedHash = users.get(login);
+        if (storedHash == null) {
+            return new Response(ResponseStatus.ERROR, "UserNotFound", CommandType.AUTHENTICATE);
+        }
+        if (storedHash.equals(passwordManager.hashPassword(password))) {
+            return new Response(ResponseStatus.REFRESH, "SuccessAuth", CommandType.AUTHENTICATE, new User(login, password), null);
+        }
+        return new Response(ResponseStatus.ERROR, "WrongPassword", CommandType.AUTHENTICATE);
+    }
+}
@@ -0,0 +1,538 @@
+package benchmarks;
+
+import server.collection.CollectionManager;
+import server.metrics.Histogram;
+import server.serverUtil.ServerApp;
+import shared.codec.BinaryCodec;
+import shared.codec.Handshake;
+import shared.codec.SerializationCodec;
+import shared.codec.WireCodec;
+import shared.dto.ChangeEvent;
+import shared.dto.CommandType;
+import shared.dto.Request;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+import shared.model.Person;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный клиент протокола Lab8: открывает много неблокирующих соединений на нескольких селекторах
+ * и в каждом держит заданное число запросов в полёте, выбирая команды по заданной смеси.
+ * Кадры и DTO — те же, что у клиента ClientApp: префикс длины, приветствие {@link Handshake}
+ * и кодек {@link WireCodec}; версия коллекции клиента передаётся в запросах, объекты,
+ * добавленные соединением, запоминаются по ответам и затем изменяются и удаляются им же.
+ * После прогрева печатает пропускную способность и перцентили задержки по каждому типу команд.
+ * <p>
+ * Параметры — системные свойства:
+ * load.host, load.port — адрес сервера (localhost:4899);
+ * load.connections — число соединений (1000);
+ * load.selectors — число потоков-селекторов (число ядер);
+ * load.depth — запросов в полёте на соединение (1);
+ * load.mix — смесь команд с весами (AUTHENTICATE:5,ADD:25,SHOW:5,UPDATE:35,REMOVE_BY_ID:30);
+ * load.warmupSec, load.durationSec — прогрев и измерение в секундах (5 и 30);
+ * load.users, load.password — число пользователей user0..userN-1 и их пароль (100, password);
+ * load.codec — serialization или binary, load.compression — сжатие кадров (serialization, false);
+ * load.subscribe — подписывать соединения на изменения коллекции, как клиент (true);
+ * load.stub — запустить сервер в этом же процессе над {@link InMemoryDataBaseManager} (false),
+ * load.stubPeople — число объектов в заглушке (1000).
+ *
+ * Запуск: java -Dload.stub=true -cp benchmarks.jar benchmarks.LoadGenerator
+ */
+public class LoadGenerator {
+    private static final String HOST = System.getProperty("load.host", "localhost");
+    private static final int PORT = Integer.getInteger("load.port", 4899);
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 1000);
+    private static final int SELECTORS = Math.max(1, Integer.getInteger("load.selectors", Runtime.getRuntime().availableProcessors()));
+    private static final int DEPTH = Math.max(1, Integer.getInteger("load.depth", 1));
+    private static final String MIX = System.getProperty("load.mix", "AUTHENTICATE:5,ADD:25,SHOW:5,UPDATE:35,REMOVE_BY_ID:30");
+    private static final int WARMUP_SEC = Integer.getInteger("load.warmupSec", 5);
+    private static final int DURATION_SEC = Integer.getInteger("load.durationSec", 30);
+    private static final int USERS = Math.max(1, Integer.getInteger("load.users", 100));
+    private static final String PASSWORD = System.getProperty("load.password", "password");
+    private static final boolean BINARY = "binary".equalsIgnoreCase(System.getProperty("load.codec", "serialization"));
+    private static final boolean COMPRESSION = Boolean.getBoolean("load.compression");
+    private static final boolean SUBSCRIBE = Boolean.parseBoolean(System.getProperty("load.subscribe", "true"));
+    private static final boolean STUB = Boolean.getBoolean("load.stub");
+    private static final int STUB_PEOPLE = Integer.getInteger("load.stubPeople", 1000);
+    /** Сколько соединений открывать за раз, чтобы не переполнить очередь приёма сервера. */
+    private static final int CONNECT_BATCH = 100;
+
+    /** Замеры текущей фазы; после прогрева заменяются новыми. */
+    private static volatile Stats stats = new Stats();
+    private static volatile boolean running = true;
+    private static final AtomicInteger connected = new AtomicInteger();
+    private static final AtomicInteger failed = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        Mix mix = Mix.parse(MIX);
+        if (STUB) {
+            startStubServer();
+        }
+        System.out.printf("connections=%d selectors=%d depth=%d codec=%s%s subscribe=%s mix=%s%n",
+                CONNECTIONS, SELECTORS, DEPTH, BINARY ? "binary" : "serialization",
+                COMPRESSION ? "+deflate" : "", SUBSCRIBE, MIX);
+
+        Worker[] workers = new Worker[SELECTORS];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker("load-" + (i + 1), mix);
+            workers[i].thread.start();
+        }
+        for (int i = 0; i < CONNECTIONS; i++) {
+            workers[i % workers.length].open(i);
+            if ((i + 1) % CONNECT_BATCH == 0) {
+                awaitConnected(i + 1);
+            }
+        }
+        awaitConnected(CONNECTIONS);
+        System.out.printf("connected %d, failed %d%n", connected.get(), failed.get());
+
+        Thread.sleep(WARMUP_SEC * 1000L);
+        stats = new Stats();
+        long start = System.nanoTime();
+        Thread.sleep(DURATION_SEC * 1000L);
+        Stats done = stats;
+        stats = new Stats();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        running = false;
+        for (Worker worker : workers) {
+            worker.selector.wakeup();
+        }
+        report(done, seconds);
+        System.exit(0);
+    }
+
+    /**
+     * Запускает сервер в этом процессе над заглушкой базы данных с пользователями user0..userN-1.
+     */
+    private static void startStubServer() throws InterruptedException {
+        if (System.getProperty("server.logLevel") == null) {
+            System.setProperty("server.logLevel", "WARNING");
+        }
+        CollectionManager cm = new CollectionManager(InMemoryDataBaseManager.withPeople(STUB_PEOPLE, USERS));
+        Thread server = new Thread(() -> new ServerApp(cm).run(), "server");
+        server.setDaemon(true);
+        server.start();
+        for (int i = 0; i < 100; i++) {
+            try {
+                new Socket(HOST, PORT).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Сервер не запустился на порту " + PORT);
+    }
+
+    /**
+     * Ждёт, пока не завершатся попытки подключения первых count соединений, но не дольше 10 секунд.
+     */
+    private static void awaitConnected(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (connected.get() + failed.get() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void report(Stats done, double seconds) {
+        long requests = 0;
+        long errors = 0;
+        System.out.printf("%n%-16s %10s %8s %9s %9s %9s %9s %9s%n",
+                "command", "requests", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<CommandType, Histogram> entry : done.latency.entrySet()) {
+            Histogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            long typeErrors = done.errors.get(entry.getKey()).sum();
+            row(entry.getKey().name(), histogram, typeErrors);
+            requests += histogram.getCount();
+            errors += typeErrors;
+        }
+        row("ALL", done.all, errors);
+        System.out.printf("%nthroughput %.0f req/s over %.1f s, pushes %d, connections lost %d%n",
+                requests / seconds, seconds, done.pushes.sum(), done.lost.sum());
+    }
+
+    private static void row(String name, Histogram histogram, long errors) {
+        System.out.printf("%-16s %10d %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getCount(), errors,
+                histogram.getQuantile(0.5) / 1e6, histogram.getQuantile(0.9) / 1e6, histogram.getQuantile(0.99) / 1e6,
+                histogram.getQuantile(0.999) / 1e6, histogram.getMax() / 1e6);
+    }
+
+    /**
+     * Замеры одной фазы: задержки и ошибки по типам команд.
+     */
+    private static class Stats {
+        final Map<CommandType, Histogram> latency = new EnumMap<>(CommandType.class);
+        final Map<CommandType, LongAdder> errors = new EnumMap<>(CommandType.class);
+        final Histogram all = new Histogram();
+        final LongAdder pushes = new LongAdder();
+        final LongAdder lost = new LongAdder();
+
+        Stats() {
+            for (CommandType type : CommandType.values()) {
+                latency.put(type, new Histogram());
+                errors.put(type, new LongAdder());
+            }
+        }
+    }
+
+    /**
+     * Смесь команд: тип выбирается случайно с вероятностью, пропорциональной весу.
+     */
+    private static class Mix {
+        final CommandType[] types;
+        final int[] cumulative;
+
+        private Mix(CommandType[] types, int[] cumulative) {
+            this.types = types;
+            this.cumulative = cumulative;
+        }
+
+        /**
+         * @param spec список "ТИП:вес" через запятую
+         */
+        static Mix parse(String spec) {
+            List<CommandType> types = new ArrayList<>();
+            List<Integer> weights = new ArrayList<>();
+            for (String part : spec.split(",")) {
+                String[] pair = part.trim().split(":");
+                types.add(CommandType.valueOf(pair[0].trim().toUpperCase()));
+                weights.add(pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1);
+            }
+            int[] cumulative = new int[weights.size()];
+            int total = 0;
+            for (int i = 0; i < cumulative.length; i++) {
+                total += weights.get(i);
+                cumulative[i] = total;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("Пустая смесь команд: " + spec);
+            }
+            return new Mix(types.toArray(new CommandType[0]), cumulative);
+        }
+
+        CommandType next() {
+            int roll = ThreadLocalRandom.current().nextInt(cumulative[cumulative.length - 1]);
+            int i = 0;
+            while (roll >= cumulative[i]) {
+                i++;
+            }
+            return types[i];
+        }
+    }
+
+    /**
+     * Отправленный запрос, ожидающий ответа.
+     */
+    private static class Sent {
+        final CommandType type;
+        final long start;
+        /** Имя добавляемого объекта, по которому его id находится в ответе; null для других команд. */
+        final String name;
+
+        Sent(CommandType type, long start, String name) {
+            this.type = type;
+            this.start = start;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Состояние одного соединения. Используется только потоком своего селектора.
+     */
+    private static class Connection {
+        final int number;
+        final String login;
+        final SocketChannel channel;
+        final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        ByteBuffer body;
+        final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+        final Map<Long, Sent> pending = new HashMap<>();
+        /** id объектов, добавленных этим соединением и ещё не удалённых. */
+        final List<Long> owned = new ArrayList<>();
+        WireCodec codec = SerializationCodec.INSTANCE;
+        boolean connected;
+        boolean handshakePending;
+        long nextRequestId;
+        long knownVersion;
+        int added;
+
+        Connection(int number, SocketChannel channel) {
+            this.number = number;
+            this.login = "user" + (number % USERS);
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * Поток со своим селектором, обслуживающий часть соединений.
+     */
+    private static class Worker implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Mix mix;
+        final Queue<Connection> incoming = new ConcurrentLinkedQueue<>();
+
+        Worker(String name, Mix mix) throws IOException {
+            this.selector = Selector.open();
+            this.mix = mix;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Начинает подключение соединения; вызывается из главного потока.
+         */
+        void open(int number) {
+            try {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.connect(new InetSocketAddress(HOST, PORT));
+                incoming.add(new Connection(number, channel));
+                selector.wakeup();
+            } catch (IOException e) {
+                failed.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(100);
+                    Connection connection;
+                    while ((connection = incoming.poll()) != null) {
+                        connection.channel.register(selector, SelectionKey.OP_CONNECT, connection);
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Ошибка селектора " + thread.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isConnectable()) {
+                    connection.channel.finishConnect();
+                    connection.connected = true;
+                    connected.incrementAndGet();
+                    key.interestOps(SelectionKey.OP_READ);
+                    start(key, connection);
+                    return;
+                }
+                if (key.isReadable()) {
+                    read(key, connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flush(key, connection);
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!connection.connected) {
+                    failed.incrementAndGet();
+                } else {
+                    stats.lost.increment();
+                }
+                key.cancel();
+                try {
+                    connection.channel.close();
+                } catch (IOException ignored) {
+                    // соединение уже закрыто
+                }
+            }
+        }
+
+        /**
+         * Отправляет приветствие, если нужен двоичный протокол или сжатие, и подписку, затем первые запросы.
+         */
+        private void start(SelectionKey key, Connection connection) throws IOException {
+            if (BINARY || COMPRESSION) {
+                ByteBuffer hello = ByteBuffer.allocate(Handshake.FRAME_LENGTH);
+                Handshake.putFrame(hello, (BINARY ? BinaryCodec.VERSION : Handshake.REJECTED)
+                        | (COMPRESSION ? Handshake.FLAG_DEFLATE : 0));
+                hello.flip();
+                connection.outbound.add(hello);
+                connection.handshakePending = true;
+                flush(key, connection);
+                return;
+            }
+            begin(key, connection);
+        }
+
+        private void begin(SelectionKey key, Connection connection) throws IOException {
+            if (SUBSCRIBE) {
+                send(key, connection, CommandType.SUBSCRIBE);
+            }
+            fill(key, connection);
+        }
+
+        /**
+         * Дополняет число запросов в полёте до load.depth.
+         */
+        private void fill(SelectionKey key, Connection connection) throws IOException {
+            while (running && connection.pending.size() < DEPTH) {
+                send(key, connection, mix.next());
+            }
+        }
+
+        private void send(SelectionKey key, Connection connection, CommandType type) throws IOException {
+            if ((type == CommandType.UPDATE || type == CommandType.REMOVE_BY_ID) && connection.owned.isEmpty()) {
+                type = CommandType.ADD;
+            }
+            String name = null;
+            Object[] args;
+            switch (type) {
+                case AUTHENTICATE -> args = new Object[]{connection.login, PASSWORD, false};
+                case ADD -> {
+                    name = "load-" + connection.number + "-" + connection.added++;
+                    args = new Object[]{person(name, connection), connection.login};
+                }
+                case UPDATE -> {
+                    long id = connection.owned.get(ThreadLocalRandom.current().nextInt(connection.owned.size()));
+                    args = new Object[]{id, person("load-" + connection.number + "-u", connection), connection.login};
+                }
+                case REMOVE_BY_ID -> args = new Object[]{connection.owned.remove(connection.owned.size() - 1), connection.login};
+                case SHOW, SUBSCRIBE -> args = new Object[0];
+                default -> args = new Object[]{connection.login};
+            }
+            Request request = new Request(type, args);
+            request.setRequestId(++connection.nextRequestId);
+            request.setKnownVersion(connection.knownVersion);
+            ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+            body.write(new byte[4]);
+            connection.codec.writeRequest(request, body);
+            ByteBuffer frame = ByteBuffer.wrap(body.toByteArray());
+            frame.putInt(0, frame.remaining() - 4);
+            connection.pending.put(request.getRequestId(), new Sent(type, System.nanoTime(), name));
+            connection.outbound.add(frame);
+            flush(key, connection);
+        }
+
+        private static Person person(String name, Connection connection) {
+            Person person = InMemoryDataBaseManager.person(ThreadLocalRandom.current().nextInt(1_000_000), connection.login);
+            person.setName(name);
+            return person;
+        }
+
+        private void flush(SelectionKey key, Connection connection) throws IOException {
+            while (!connection.outbound.isEmpty()) {
+                ByteBuffer head = connection.outbound.peekFirst();
+                connection.channel.write(head);
+                if (head.hasRemaining()) {
+                    break;
+                }
+                connection.outbound.pollFirst();
+            }
+            key.interestOps(connection.outbound.isEmpty()
+                    ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        private void read(SelectionKey key, Connection connection) throws IOException {
+            while (true) {
+                ByteBuffer buffer = connection.body != null ? connection.body : connection.lengthBuffer;
+                int n = connection.channel.read(buffer);
+                if (n == -1) {
+                    throw new IOException("Сервер закрыл соединение");
+                }
+                if (buffer.hasRemaining()) {
+                    return;
+                }
+                if (connection.body == null) {
+                    connection.lengthBuffer.flip();
+                    connection.body = ByteBuffer.allocate(connection.lengthBuffer.getInt());
+                    connection.lengthBuffer.clear();
+                    continue;
+                }
+                byte[] frame = connection.body.array();
+                connection.body = null;
+                if (connection.handshakePending) {
+                    connection.handshakePending = false;
+                    int hello = Math.max(Handshake.parse(ByteBuffer.wrap(frame)), Handshake.REJECTED);
+                    connection.codec = Handshake.withFlags(Handshake.version(hello) == BinaryCodec.VERSION
+                            ? BinaryCodec.INSTANCE : SerializationCodec.INSTANCE, Handshake.flags(hello));
+                    begin(key, connection);
+                } else {
+                    complete(connection, connection.codec.readResponse(new ByteArrayInputStream(frame)));
+                    fill(key, connection);
+                }
+            }
+        }
+
+        /**
+         * Учитывает ответ: задержку и ошибку по типу запроса, версию коллекции и id добавленного объекта.
+         */
+        private void complete(Connection connection, Response response) {
+            Stats current = stats;
+            connection.knownVersion = Math.max(connection.knownVersion, response.getVersion());
+            Sent sent = connection.pending.remove(response.getRequestId());
+            if (sent == null) {
+                current.pushes.increment();
+                return;
+            }
+            if (sent.type == CommandType.SUBSCRIBE) {
+                return;
+            }
+            long elapsed = System.nanoTime() - sent.start;
+            current.latency.get(sent.type).record(elapsed);
+            current.all.record(elapsed);
+            if (response.getStatus() == ResponseStatus.ERROR) {
+                current.errors.get(sent.type).increment();
+            }
+            if (sent.name != null) {
+                Long id = findAdded(response, sent.name);
+                if (id != null) {
+                    connection.owned.add(id);
+                }
+            }
+        }
+
+        private static Long findAdded(Response response, String name) {
+            if (response.getChanges() != null) {
+                for (ChangeEvent change : response.getChanges()) {
+                    if (change.getKind() == ChangeEvent.Kind.ADDED && name.equals(change.getPerson().getName())) {
+                        return change.getId();
+                    }
+                }
+            }
+            if (response.getPersons() != null) {
+                for (Person person : response.getPersons()) {
+                    if (name.equals(person.getName())) {
+                        return person.getId();
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
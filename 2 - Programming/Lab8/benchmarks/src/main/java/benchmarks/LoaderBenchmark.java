@@ -0,0 +1,130 @@
+package benchmarks;
+
+import server.collection.PersonStore;
+import server.dataBase.PersonRowDecoder;
+import shared.model.Coordinates;
+import shared.model.Location;
+import shared.model.Person;
+import shared.model.enums.Color;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Сравнение загрузки таблицы People в кэш: прежний загрузчик (поиск столбцов по имени,
+ * промежуточный LinkedList, затем перенос в хранилище) и потоковый {@link PersonRowDecoder},
+ * который кладёт строки сразу в {@link PersonStore}.
+ * Выводит строк в секунду и пиковое использование кучи для каждого варианта.
+ *
+ * Запуск: java -jar benchmarks.jar [число строк]
+ */
+public class LoaderBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 5;
+    private static final int OWNERS = 100;
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        System.out.printf("%-10s %12s %14s%n", "loader", "rows/sec", "peak heap, MB");
+        report("legacy", rows, LoaderBenchmark::legacyLoad);
+        report("streaming", rows, LoaderBenchmark::streamingLoad);
+    }
+
+    private static void report(String name, int rows, Loader loader) throws SQLException {
+        for (int i = 0; i < WARMUP; i++) {
+            loader.load(StubPeopleResultSet.create(rows, OWNERS));
+        }
+        long totalNanos = 0;
+        long peak = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            ResultSet resultSet = StubPeopleResultSet.create(rows, OWNERS);
+            System.gc();
+            long baseline = resetPeak();
+            long start = System.nanoTime();
+            PersonStore store = loader.load(resultSet);
+            totalNanos += System.nanoTime() - start;
+            peak = Math.max(peak, peakHeap() - baseline);
+            if (store.size() != rows) {
+                throw new IllegalStateException("Загружено " + store.size() + " из " + rows);
+            }
+        }
+        double rowsPerSec = (double) rows * ITERATIONS / (totalNanos / 1e9);
+        System.out.printf("%-10s %12.0f %14.1f%n", name, rowsPerSec, peak / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Прежний загрузчик DataBaseManager.loadCache: столбцы по имени, eyeColor читается дважды,
+     * результат сначала собирается в LinkedList, потом переносится в хранилище.
+     */
+    private static PersonStore legacyLoad(ResultSet resultSet) throws SQLException {
+        LinkedList<Person> collection = new LinkedList<>();
+        while (resultSet.next()) {
+            Person person = new Person();
+            person.setId(resultSet.getLong("id"));
+            person.setName(resultSet.getString("name"));
+            person.setHeight(resultSet.getInt("height"));
+            person.setWeight(resultSet.getLong("weight"));
+            person.setEyeColor(resultSet.getString("eyeColor") != null ? Color.valueOf(resultSet.getString("eyeColor")) : null);
+            person.setPassportID(resultSet.getString("passportId"));
+            person.setUser_login(resultSet.getString("user_login"));
+            Coordinates coordinates = new Coordinates();
+            coordinates.setX(resultSet.getLong("coordX"));
+            coordinates.setY(resultSet.getDouble("coordY"));
+            person.setCoordinates(coordinates);
+            Location location = new Location();
+            location.setX(resultSet.getDouble("locX"));
+            location.setY(resultSet.getFloat("locY"));
+            location.setZ(resultSet.getInt("locZ"));
+            person.setLocation(location);
+            collection.add(person);
+        }
+        PersonStore store = new PersonStore();
+        store.addAll(collection);
+        return store;
+    }
+
+    /**
+     * Потоковый загрузчик: индексы столбцов определяются один раз, строки сразу попадают в хранилище.
+     */
+    private static PersonStore streamingLoad(ResultSet resultSet) throws SQLException {
+        PersonStore store = new PersonStore();
+        PersonRowDecoder decoder = new PersonRowDecoder(resultSet);
+        while (resultSet.next()) {
+            store.add(decoder.decode(resultSet));
+        }
+        return store;
+    }
+
+    private static long resetPeak() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            pool.resetPeakUsage();
+            used += pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+
+    @FunctionalInterface
+    private interface Loader {
+        PersonStore load(ResultSet resultSet) throws SQLException;
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.dataBase.PasswordManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PasswordManager#hashPassword}: SHA-256 и перевод в шестнадцатеричную строку,
+ * выполняется при каждом входе и регистрации.
+ *
+ * Запуск: java -cp benchmarks.jar benchmarks.PasswordBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordBenchmark {
+    @Param({"8", "64"})
+    public int length;
+
+    private final PasswordManager passwordManager = new PasswordManager();
+    private String password;
+
+    @Setup
+    public void setup() {
+        password = "p".repeat(length);
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return passwordManager.hashPassword(password);
+    }
+
+    public static void main(String[] args) throws Exception {
+        org.openjdk.jmh.Main.main(args.length > 0 ? args : new String[]{PasswordBenchmark.class.getSimpleName()});
+    }
+}
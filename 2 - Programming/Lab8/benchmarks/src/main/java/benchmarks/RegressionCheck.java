@@ -0,0 +1,144 @@
+package benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Запускает JMH-бенчмарки и сравнивает среднее время операции с сохранёнными базовыми значениями.
+ * Если какой-либо бенчмарк медленнее базы больше чем на допуск (свойство bench.tolerance,
+ * по умолчанию 0.25 — на 25%), печатает его как регрессию и завершается с кодом 1.
+ * <p>
+ * Базовые значения лежат в файле bench.baselines (по умолчанию benchmarks/baselines.tsv):
+ * строка на бенчмарк — имя с параметрами, время и единица через табуляцию. С -Dbench.record=true
+ * файл перезаписывается результатами текущего запуска. Базы зависят от машины, поэтому
+ * их записывают на той же машине, на которой потом проверяют. Ошибка в любом бенчмарке также завершает проверку неудачей.
+ *
+ * Запуск: java [-Dbench.record=true] -cp benchmarks.jar benchmarks.RegressionCheck [параметры JMH]
+ */
+public class RegressionCheck {
+    /** Бенчмарки, запускаемые, если в параметрах не указано другое. */
+    private static final String DEFAULT_INCLUDE = "benchmarks\\.(Codec|Collection|Dispatcher|Password)Benchmark\\.";
+
+    public static void main(String[] args) throws Exception {
+        Path baselines = Paths.get(System.getProperty("bench.baselines", "benchmarks/baselines.tsv"));
+        double tolerance = Double.parseDouble(System.getProperty("bench.tolerance", "0.25"));
+        boolean record = Boolean.getBoolean("bench.record");
+
+        CommandLineOptions cli = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli).shouldFailOnError(true);
+        if (cli.getIncludes().isEmpty()) {
+            options.include(DEFAULT_INCLUDE);
+        }
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        Map<String, Score> current = new TreeMap<>();
+        for (RunResult result : results) {
+            current.put(key(result.getParams()), new Score(result.getPrimaryResult().getScore(),
+                    result.getPrimaryResult().getScoreUnit()));
+        }
+        if (record) {
+            Map<String, Score> merged = Files.exists(baselines) ? read(baselines) : new TreeMap<>();
+            merged.putAll(current);
+            write(baselines, merged);
+            System.out.println("Базовые значения записаны в " + baselines + ": " + current.size());
+            return;
+        }
+        if (!Files.exists(baselines)) {
+            System.err.println("Нет файла базовых значений " + baselines + "; запишите его с -Dbench.record=true");
+            System.exit(2);
+        }
+        if (!compare(read(baselines), current, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Печатает таблицу сравнения.
+     *
+     * @return false, если хотя бы один бенчмарк медленнее базы больше чем на допуск
+     */
+    private static boolean compare(Map<String, Score> baseline, Map<String, Score> current, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%n%-60s %14s %14s %9s%n", "бенчмарк", "база", "сейчас", "разница");
+        current.forEach((name, score) -> {
+            Score base = baseline.get(name);
+            if (base == null || !base.unit.equals(score.unit)) {
+                System.out.printf(Locale.ROOT, "%-60s %14s %14.1f %9s%n", name, "-", score.value, "нет базы");
+                return;
+            }
+            double change = score.value / base.value - 1;
+            boolean regressed = change > tolerance;
+            System.out.printf(Locale.ROOT, "%-60s %14.1f %14.1f %+8.1f%%%s%n",
+                    name, base.value, score.value, change * 100, regressed ? "  РЕГРЕССИЯ" : "");
+            if (regressed) {
+                regressions.add(name);
+            }
+        });
+        if (regressions.isEmpty()) {
+            System.out.printf(Locale.ROOT, "Регрессий нет (допуск %.0f%%)%n", tolerance * 100);
+            return true;
+        }
+        System.out.printf(Locale.ROOT, "Регрессий: %d (допуск %.0f%%): %s%n", regressions.size(), tolerance * 100, regressions);
+        return false;
+    }
+
+    /**
+     * @return имя бенчмарка без пакета и значения параметров, например "CollectionBenchmark.info people=1000"
+     */
+    private static String key(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        StringBuilder key = new StringBuilder(benchmark.substring(benchmark.indexOf('.') + 1));
+        for (String param : params.getParamsKeys()) {
+            key.append(' ').append(param).append('=').append(params.getParam(param));
+        }
+        return key.toString();
+    }
+
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new TreeMap<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            scores.put(fields[0], new Score(Double.parseDouble(fields[1]), fields[2]));
+        }
+        return scores;
+    }
+
+    private static void write(Path file, Map<String, Score> scores) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# Базовые значения для RegressionCheck: бенчмарк, среднее время, единица");
+        scores.forEach((name, score) -> lines.add(String.format(Locale.ROOT, "%s\t%.3f\t%s", name, score.value, score.unit)));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private static class Score {
+        final double value;
+        final String unit;
+
+        Score(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
+        }
+    }
+}
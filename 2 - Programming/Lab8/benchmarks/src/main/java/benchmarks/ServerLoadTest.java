@@ -0,0 +1,169 @@
+package benchmarks;
+
+import server.serverUtil.ServerApp;
+import shared.dto.CommandType;
+import shared.dto.Request;
+import shared.dto.Response;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+/**
+ * Нагрузочный тест сервера в одном из режимов выполнения (свойство server.executionMode):
+ * pipeline — пулы стадий {@link server.serverUtil.RequestPipeline}, virtual — поток на запрос.
+ * Сервер запускается в этом же процессе, клиенты шлют запросы только на чтение (INFO, SHOW),
+ * поэтому тест не требует базы данных. Выводит пропускную способность, перцентили задержки,
+ * пиковое использование кучи и пиковое число потоков платформы (включая потоки клиентов).
+ *
+ * Запуск: java -cp benchmarks.jar benchmarks.ServerLoadTest [pipeline|virtual] [клиентов] [запросов на клиента]
+ */
+public class ServerLoadTest {
+    private static final String HOST = "localhost";
+    private static final int PORT = 4899;
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "pipeline";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        System.setProperty("server.executionMode", mode);
+
+        Thread server = new Thread(() -> new ServerApp().run(), "server");
+        server.setDaemon(true);
+        server.start();
+        awaitPort();
+        ServerApp.logger.setLevel(Level.WARNING);
+
+        runClients(Math.min(clients, 20), 20);
+
+        System.gc();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long baseline = resetPeak();
+        long start = System.nanoTime();
+        long[] latencies = runClients(clients, requests);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peak = peakHeap() - baseline;
+
+        Arrays.sort(latencies);
+        System.out.printf("mode=%s clients=%d requests=%d%n", mode, clients, latencies.length);
+        System.out.printf("throughput %.0f req/s%n", latencies.length / seconds);
+        System.out.printf("latency ms: p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                percentile(latencies, 99.9), latencies[latencies.length - 1] / 1e6);
+        System.out.printf("peak heap growth %.1f MB, peak platform threads %d%n",
+                peak / (1024.0 * 1024.0), threads.getPeakThreadCount());
+        System.exit(0);
+    }
+
+    private static long[] runClients(int clients, int requests) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            futures.add(pool.submit(() -> client(requests)));
+        }
+        long[] all = new long[clients * requests];
+        int offset = 0;
+        for (Future<long[]> future : futures) {
+            long[] part = future.get();
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        pool.shutdown();
+        return all;
+    }
+
+    /**
+     * Один клиент: отправляет запросы по очереди и замеряет время до получения ответа.
+     */
+    private static long[] client(int requests) throws IOException, ClassNotFoundException {
+        long[] latencies = new long[requests];
+        try (Socket socket = new Socket(HOST, PORT)) {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < requests; i++) {
+                CommandType type = i % 2 == 0 ? CommandType.INFO : CommandType.SHOW;
+                byte[] frame = serialize(new Request(type, new Object[]{"loadtest"}));
+                long start = System.nanoTime();
+                out.writeInt(frame.length);
+                out.write(frame);
+                out.flush();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                    if (!(ois.readObject() instanceof Response)) {
+                        throw new IOException("Ответ сервера не является Response");
+                    }
+                }
+                latencies[i] = System.nanoTime() - start;
+            }
+        }
+        return latencies;
+    }
+
+    private static byte[] serialize(Request request) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(request);
+        }
+        return baos.toByteArray();
+    }
+
+    private static void awaitPort() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try {
+                new Socket(HOST, PORT).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Сервер не запустился на порту " + PORT);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static long resetPeak() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            pool.resetPeakUsage();
+            used += pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+    }
+}
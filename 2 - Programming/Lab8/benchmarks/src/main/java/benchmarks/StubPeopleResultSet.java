@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Заглушка {@link ResultSet} с заданным числом строк таблицы People.
+ * Значения столбцов заранее разложены по массивам, поэтому измеряется только разбор строк,
+ * без сети и драйвера базы данных.
+ */
+public final class StubPeopleResultSet {
+    private static final String[] COLUMNS = {
+            "id", "name", "height", "weight", "eyecolor", "coordx", "coordy",
+            "locx", "locy", "locz", "passportid", "user_login"
+    };
+    private static final String[] COLORS = {"RED", "BLACK", "BLUE", "ORANGE", "BROWN", null};
+
+    private StubPeopleResultSet() {
+    }
+
+    /**
+     * Создаёт результат из rows строк.
+     *
+     * @param rows число строк
+     * @param owners число разных владельцев
+     * @return заглушка результата запроса SELECT * FROM People
+     */
+    public static ResultSet create(int rows, int owners) {
+        Object[][] data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            long id = i + 1;
+            data[i] = new Object[]{
+                    id, "person" + id, 100 + (int) (id * 7 % 120), 40L + id % 80, COLORS[(int) (id % COLORS.length)],
+                    id % 59, (double) (id % 426), id * 0.5, (float) (id % 100), (int) (id % 1000),
+                    "P" + id, "user" + (id % owners)
+            };
+        }
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows;
+                        case "findColumn":
+                            return columnIndex((String) args[0]);
+                        case "close":
+                            return null;
+                        case "wasNull":
+                            return false;
+                        case "getLong":
+                        case "getInt":
+                        case "getDouble":
+                        case "getFloat":
+                        case "getString":
+                            Object value = data[cursor[0]][index(args[0]) - 1];
+                            return convert(value, method.getReturnType());
+                        default:
+                            throw new SQLException("Не поддерживается заглушкой: " + method.getName());
+                    }
+                });
+    }
+
+    private static int index(Object column) throws SQLException {
+        return column instanceof Integer ? (Integer) column : columnIndex((String) column);
+    }
+
+    private static int columnIndex(String label) throws SQLException {
+        String lower = label.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(lower)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("Нет столбца " + label);
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (type == String.class) {
+            return value == null ? null : value.toString();
+        }
+        Number number = (Number) value;
+        if (type == long.class) {
+            return number.longValue();
+        } else if (type == int.class) {
+            return number.intValue();
+        } else if (type == double.class) {
+            return number.doubleValue();
+        } else {
+            return number.floatValue();
+        }
+    }
+}
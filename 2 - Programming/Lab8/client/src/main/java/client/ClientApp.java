@@ -4,6 +4,10 @@ import client.console.ClientManager;
 import client.console.ConsoleManager;
 import client.fx.DisconnectListener;
 import client.fx.RefreshCollectionListener;
+import shared.codec.BinaryCodec;
+import shared.codec.Handshake;
+import shared.codec.SerializationCodec;
+import shared.codec.WireCodec;
 import shared.dto.*;
 import shared.model.Person;
 
@@ -14,7 +18,10 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Главный класс клиентского приложения, реализующий неблокирующий клиент
@@ -30,6 +37,15 @@ public class ClientApp {
     private static final int BUFFER_SIZE = 18920;
     /** Задержка перед повторной попыткой подключения в миллисекундах. */
     private static final int RECONNECT_DELAY_MS = 5000;
+    /** Запрашивать ли у сервера двоичный протокол (свойство client.codec=binary); по умолчанию сериализация Java. */
+    private static final boolean WANT_BINARY = "binary".equalsIgnoreCase(System.getProperty("client.codec"));
+    /**
+     * Запрашивать ли у сервера сжатие больших кадров (свойство client.compression=true, по умолчанию нет).
+     * Запрос сжатия идёт в приветствии, которого сервер без согласования протокола не понимает.
+     */
+    private static final boolean WANT_DEFLATE = Boolean.getBoolean("client.compression");
+    /** Подписываться ли после входа на рассылку изменений коллекции (свойство client.subscribe, по умолчанию да). */
+    private static final boolean SUBSCRIBE = Boolean.parseBoolean(System.getProperty("client.subscribe", "true"));
     /** Приглашение командной строки клиента. */
     protected static final String PROMPT = "[client] $ ";
 
@@ -61,6 +77,18 @@ public class ClientApp {
     private boolean connectionProblem = true;
     /** Очередь запросов для отправки на сервер. */
     private static Queue<Request> requestQueue = new ConcurrentLinkedQueue<>();
+    /** Счётчик номеров запросов. */
+    private static final AtomicLong requestIds = new AtomicLong();
+    /** Запросы, отправленные без ожидания ответа, по номеру запроса. */
+    private static final Map<Long, CompletableFuture<Response>> pending = new ConcurrentHashMap<>();
+    /** Закодированные запросы, ещё не принятые ядром. */
+    private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+    /** Кодек текущего соединения. */
+    private WireCodec codec = SerializationCodec.INSTANCE;
+    /** Флаг, указывающий, что приветствие отправлено и запросы ждут ответа сервера на него. */
+    private boolean handshakePending = false;
+    /** Сервер разорвал соединение, не ответив на приветствие: при переподключении приветствие не отправляется. */
+    private boolean helloUnsupported = false;
     /** Буфер для чтения длины входящих данных (4 байта). */
     private ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
     /** Буфер для чтения данных ответа. */
@@ -70,6 +98,8 @@ public class ClientApp {
     private static Request mainRequest;
 
     private static LinkedList<Person> persons = new LinkedList<>();
+    /** Версия коллекции, до которой доведена {@link #persons}; отправляется с каждым запросом. */
+    private static volatile long collectionVersion = 0;
 
     private static ArrayList<RefreshCollectionListener> refreshCollectionListeners = new ArrayList<>();
 
@@ -159,8 +189,6 @@ public class ClientApp {
                 } catch (IOException ex) {
                     console.print("Ошибка подключения: " + ex.getMessage());
                 }
-            } catch (ClassNotFoundException e) {
-                console.print("Ошибка десериализации: " + e.getMessage());
             }
         }
         System.exit(0);
@@ -195,7 +223,18 @@ public class ClientApp {
     private void successConnect(SelectionKey key) throws IOException {
         SocketChannel channel = (SocketChannel) key.channel();
         if (channel.finishConnect()) {
-            channel.register(selector, SelectionKey.OP_READ);
+            codec = SerializationCodec.INSTANCE;
+            if ((WANT_BINARY || WANT_DEFLATE) && !helloUnsupported) {
+                ByteBuffer hello = ByteBuffer.allocate(Handshake.FRAME_LENGTH);
+                Handshake.putFrame(hello, (WANT_BINARY ? BinaryCodec.VERSION : Handshake.REJECTED)
+                        | (WANT_DEFLATE ? Handshake.FLAG_DEFLATE : 0));
+                hello.flip();
+                outbound.add(hello);
+                handshakePending = true;
+                channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else {
+                channel.register(selector, SelectionKey.OP_READ);
+            }
             for (DisconnectListener listener : disconnectListeners){
                 listener.connect();
             }
@@ -210,13 +249,17 @@ public class ClientApp {
     }
 
     /**
-     * Читает ответ от сервера, десериализует его и обрабатывает.
+     * Читает ответ от сервера, декодирует его кодеком соединения и обрабатывает.
+     * Первый кадр после отправки приветствия — ответ сервера на него.
+     * Ответы типа SUBSCRIBE — подтверждение подписки и рассылки сервера — только обновляют коллекцию
+     * и уведомляют {@link RefreshCollectionListener}, но не становятся ответом для окон.
+     * Рассылка без изменений и снимка означает, что они не поместились в кадр: клиент подписывается
+     * повторно и получает их в ответе.
      *
      * @param key ключ селектора для клиентского канала
      * @throws IOException если произошла ошибка чтения
-     * @throws ClassNotFoundException если не удалось десериализовать объект
      */
-    private void read(SelectionKey key) throws IOException, ClassNotFoundException {
+    private void read(SelectionKey key) throws IOException {
         SocketChannel channel = (SocketChannel) key.channel();
         ByteBuffer buffer = (dataBuffer != null) ? dataBuffer : lengthBuffer;
         int bytesRead = channel.read(buffer);
@@ -248,61 +291,127 @@ public class ClientApp {
             dataBuffer = null;
             dataLength = -1;
 
+            if (handshakePending) {
+                finishHandshake(key, data);
+                return;
+            }
 
-            try (ByteArrayInputStream bais = new ByteArrayInputStream(data);
-                 ObjectInputStream ois = new ObjectInputStream(bais)) {
-                Response response = (Response) ois.readObject();
-                mainResponse = response;
-                if (response.getStatus().equals(ResponseStatus.REFRESH)){
-                    persons.clear();
-                    persons.addAll(response.getPersons());
-
+            try {
+                Response response = codec.readResponse(new ByteArrayInputStream(data));
+                if (response.getStatus().equals(ResponseStatus.REFRESH) && applyRefresh(response)){
                     for (RefreshCollectionListener listener : refreshCollectionListeners){
                         listener.refresh();
                     }
-
                 }
-
-            ClientApp.mainResponse = response;
+                CompletableFuture<Response> future = pending.remove(response.getRequestId());
+                if (future != null) {
+                    future.complete(response);
+                } else if (response.getRequestId() == 0 && response.getStatus() == ResponseStatus.ERROR) {
+                    // Сервер не прочитал даже номер запроса: неизвестно, чей это ответ, поэтому ожидания не дождутся своих
+                    failPending(new IOException(response.getMessage()));
+                }
+                if (response.getType() == CommandType.SUBSCRIBE) {
+                    if (response.getStatus() == ResponseStatus.REFRESH
+                            && response.getChanges() == null && response.getPersons() == null) {
+                        // Изменения не поместились в кадр рассылки: забираем их ответом на повторную подписку
+                        send(new Request(CommandType.SUBSCRIBE, new Object[0]));
+                    }
+                    isWaitingForResponse = !pending.isEmpty();
+                    return;
+                }
+                mainResponse = response;
+                if (SUBSCRIBE && response.getType() == CommandType.AUTHENTICATE
+                        && response.getStatus() == ResponseStatus.REFRESH) {
+                    send(new Request(CommandType.SUBSCRIBE, new Object[0]));
+                }
+            } catch (IOException e) {
+                console.print("Ошибка десериализации: " + e.getMessage());
             }
 
-            isWaitingForResponse = false;
+            isWaitingForResponse = !pending.isEmpty();
             System.out.print(PROMPT);
-            key.interestOps(SelectionKey.OP_WRITE);
         }
     }
 
     /**
-     * Отправляет запрос на сервер, сериализуя объект {@link Request}.
+     * Обновляет локальную копию коллекции по ответу REFRESH: применяет изменения новее своей версии
+     * или заменяет копию снимком, если он не старее уже применённых изменений.
+     * Ответы приходят в любом порядке, поэтому устаревшие снимки и события пропускаются.
+     *
+     * @return true, если коллекция изменилась
+     */
+    private static boolean applyRefresh(Response response) {
+        if (response.getChanges() != null) {
+            boolean changed = false;
+            for (ChangeEvent change : response.getChanges()) {
+                if (change.getVersion() <= collectionVersion) {
+                    continue;
+                }
+                persons.removeIf(p -> p.getId() == change.getId());
+                if (change.getKind() != ChangeEvent.Kind.REMOVED) {
+                    persons.add(change.getPerson());
+                }
+                collectionVersion = change.getVersion();
+                changed = true;
+            }
+            return changed;
+        }
+        if (response.getPersons() != null && response.getVersion() >= collectionVersion) {
+            persons.clear();
+            persons.addAll(response.getPersons());
+            collectionVersion = response.getVersion();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Обрабатывает ответ сервера на приветствие: при согласии переключает соединение на двоичный протокол,
+     * иначе остаётся на сериализации Java; включает сжатие, если сервер его принял.
+     * После этого отправляются накопленные запросы.
+     */
+    private void finishHandshake(SelectionKey key, byte[] data) {
+        handshakePending = false;
+        int hello = Math.max(Handshake.parse(ByteBuffer.wrap(data)), Handshake.REJECTED);
+        codec = Handshake.withFlags(Handshake.version(hello) == BinaryCodec.VERSION
+                ? BinaryCodec.INSTANCE : SerializationCodec.INSTANCE, Handshake.flags(hello));
+        console.print("Протокол соединения: " + codec.name());
+        if (!requestQueue.isEmpty()) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Отправляет на сервер все накопленные запросы, не дожидаясь ответов на предыдущие.
+     * Префиксы длины и тела уходят одним сборным write; если ядро приняло не всё,
+     * остаток дописывается при следующей готовности канала.
      *
      * @param key ключ селектора для клиентского канала
      * @throws IOException если произошла ошибка записи
      */
     private void write(SelectionKey key) throws IOException {
-        if (requestQueue.isEmpty()) {
-            key.interestOps(SelectionKey.OP_READ);
-            return;
-        }
-
         SocketChannel channel = (SocketChannel) key.channel();
-        Request request = requestQueue.peek();
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-            oos.writeObject(request);
-            oos.flush();
-            byte[] data = baos.toByteArray();
-
-            ByteBuffer lengthBuf = ByteBuffer.allocate(4).putInt(data.length);
-            lengthBuf.flip();
-            channel.write(lengthBuf);
-
-            ByteBuffer dataBuf = ByteBuffer.wrap(data);
-            channel.write(dataBuf);
-
-            requestQueue.poll();
+        Request request;
+        while (!handshakePending && (request = requestQueue.poll()) != null) {
+            try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+                codec.writeRequest(request, baos);
+                byte[] data = baos.toByteArray();
+                ByteBuffer lengthBuf = ByteBuffer.allocate(4).putInt(data.length);
+                lengthBuf.flip();
+                outbound.add(lengthBuf);
+                outbound.add(ByteBuffer.wrap(data));
+            }
             isWaitingForResponse = true;
-            key.interestOps(SelectionKey.OP_READ);
         }
+        if (!outbound.isEmpty()) {
+            channel.write(outbound.toArray(new ByteBuffer[0]));
+            while (!outbound.isEmpty() && !outbound.peekFirst().hasRemaining()) {
+                outbound.pollFirst();
+            }
+        }
+        key.interestOps(outbound.isEmpty() && (handshakePending || requestQueue.isEmpty())
+                ? SelectionKey.OP_READ
+                : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
     }
 
     /**
@@ -373,8 +482,13 @@ public class ClientApp {
 
     /**
      * Закрывает клиентский канал, селектор и очищает очередь запросов.
+     * Если соединение закрылось до ответа на приветствие, дальше клиент работает без него, на сериализации Java.
      */
     private void closeResources() {
+        if (handshakePending && !helloUnsupported) {
+            helloUnsupported = true;
+            console.print("Сервер не ответил на приветствие, переподключение без согласования протокола");
+        }
         try {
             if (socketChannel != null && socketChannel.isOpen()) {
                 socketChannel.close();
@@ -387,7 +501,32 @@ public class ClientApp {
         }
         isConnected = false;
         connectionProblem = true;
+        handshakePending = false;
         requestQueue.clear();
+        outbound.clear();
+        failPending(new IOException("Соединение с сервером потеряно"));
+    }
+
+    /**
+     * Завершает ошибкой все ожидания ответов и забывает их.
+     */
+    private static void failPending(IOException cause) {
+        for (CompletableFuture<Response> future : pending.values()) {
+            future.completeExceptionally(cause);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Отказывается от ожидания ответа, например по таймауту: ожидание отменяется и убирается из списка,
+     * а пришедший позже ответ просто не найдёт своего ожидания.
+     *
+     * @param future ожидание, полученное от {@link #send(Request)}
+     */
+    public static void abandon(CompletableFuture<Response> future) {
+        if (future.cancel(false)) {
+            pending.values().remove(future);
+        }
     }
 
 
@@ -425,20 +564,37 @@ public class ClientApp {
 
         public static void setRequest(Request req) {
             if (req != null) {
-                requestQueue.offer(req);
-                try {
-                    ClientApp client = getInstance();
-                    if (client.isConnected && client.socketChannel != null && client.socketChannel.isConnected()) {
-                        SelectionKey key = client.socketChannel.keyFor(client.selector);
-                        if (key != null && key.isValid()) {
-                            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
-                        }
-                    }
-                } catch (Exception e) {
+                send(req);
+            }
+        }
 
+    /**
+     * Отправляет запрос, не дожидаясь ответов на предыдущие.
+     * Запросу присваивается номер, по которому ответ находит своё ожидание, даже если пришёл не по порядку.
+     *
+     * @param req запрос
+     * @return ответ сервера, который завершится при его получении
+     */
+    public static CompletableFuture<Response> send(Request req) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        req.setRequestId(requestIds.incrementAndGet());
+        req.setKnownVersion(collectionVersion);
+        pending.put(req.getRequestId(), future);
+        requestQueue.offer(req);
+        try {
+            ClientApp client = getInstance();
+            if (client.isConnected && client.socketChannel != null && client.socketChannel.isConnected()) {
+                SelectionKey key = client.socketChannel.keyFor(client.selector);
+                if (key != null && key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    client.selector.wakeup();
                 }
             }
+        } catch (Exception e) {
+
         }
+        return future;
+    }
 
     private static ClientApp getInstance() {
         return instance;
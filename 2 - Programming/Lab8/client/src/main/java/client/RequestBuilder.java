@@ -149,6 +149,11 @@ public class RequestBuilder {
         runningScripts.add(scriptPath);
         Path prevDir = currentScriptDir;
         currentScriptDir = scriptPath.getParent();
+        // Подряд идущие add, update и remove_by_id копятся и уходят одним запросом;
+        // в finally отправляются и при ошибке разбора
+        List<Person> pendingAdds = new ArrayList<>();
+        List<Person> pendingUpdates = new ArrayList<>();
+        List<Long> pendingRemoves = new ArrayList<>();
         try {
             List<String> lines = Files.readAllLines(scriptPath).stream()
                     .map(String::trim)
@@ -157,6 +162,16 @@ public class RequestBuilder {
 
             for (int i = 0; i < lines.size(); i++) {
                 String line = lines.get(i).toLowerCase();
+                String command = line.split("\\s+", 2)[0];
+                if (!command.equals("add")) {
+                    flushAdds(pendingAdds, sender);
+                }
+                if (!command.equals("update")) {
+                    flushUpdates(pendingUpdates, sender);
+                }
+                if (!command.equals("remove_by_id")) {
+                    flushRemoves(pendingRemoves, sender);
+                }
                 if (line.startsWith("execute_script")) {
                     String[] parts = lines.get(i).split("\\s+", 2);
                     if (parts.length == 2) {
@@ -169,8 +184,7 @@ public class RequestBuilder {
                     String[] parts = line.split("\\s+", 2);
                     if (parts.length == 2) {
                         try {
-                            long id = Long.parseLong(parts[1]);
-                            sender.accept(new Request(CommandType.REMOVE_BY_ID, new Object[]{id, ClientApp.user.getLogin()}));
+                            pendingRemoves.add(Long.parseLong(parts[1]));
                         } catch (NumberFormatException e) {
                             System.out.println("Ошибка: ID должен быть числом.");
                         }
@@ -184,10 +198,11 @@ public class RequestBuilder {
                     }
                     List<String> params = lines.subList(i + 1, i + 11);
                     Person p = parsePersonFromLines(params);
-                    sender.accept(new Request(
-                            isMax ? CommandType.ADD_IF_MAX : CommandType.ADD,
-                            new Object[]{p, ClientApp.user.getLogin()}
-                    ));
+                    if (isMax) {
+                        sender.accept(new Request(CommandType.ADD_IF_MAX, new Object[]{p, ClientApp.user.getLogin()}));
+                    } else {
+                        pendingAdds.add(p);
+                    }
                     i += 10;
                 }
 
@@ -213,10 +228,8 @@ public class RequestBuilder {
 
                     List<String> params = lines.subList(i + 1, i + 11); // Берем следующие 10 строк
                     Person p = parsePersonFromLines(params);
-                    sender.accept(new Request(
-                            CommandType.UPDATE,
-                            new Object[]{id, p, ClientApp.user.getLogin()}
-                    ));
+                    p.setId(id);
+                    pendingUpdates.add(p);
                     i += 10;
                 }
                 else if (line.equals("exit")) {
@@ -234,11 +247,57 @@ public class RequestBuilder {
         } catch (NumberFormatException e) {
             System.out.println("Ошибка разбора числа: " + e.getMessage());
         } finally {
+            flushAdds(pendingAdds, sender);
+            flushUpdates(pendingUpdates, sender);
+            flushRemoves(pendingRemoves, sender);
             runningScripts.remove(scriptPath);
             currentScriptDir = prevDir;
         }
     }
 
+    /**
+     * Отправляет накопленные подряд идущие команды add: одну — как ADD,
+     * несколько — одним запросом ADD_BATCH, который сервер выполняет одной транзакцией.
+     */
+    private void flushAdds(List<Person> pendingAdds, Consumer<Request> sender) {
+        if (pendingAdds.size() == 1) {
+            sender.accept(new Request(CommandType.ADD, new Object[]{pendingAdds.get(0), ClientApp.user.getLogin()}));
+        } else if (pendingAdds.size() > 1) {
+            sender.accept(new Request(CommandType.ADD_BATCH,
+                    new Object[]{pendingAdds.toArray(new Person[0]), ClientApp.user.getLogin()}));
+        }
+        pendingAdds.clear();
+    }
+
+    /**
+     * Отправляет накопленные подряд идущие команды update: одну — как UPDATE,
+     * несколько — одним запросом UPDATE_BATCH; id каждого элемента записан в сам объект.
+     */
+    private void flushUpdates(List<Person> pendingUpdates, Consumer<Request> sender) {
+        if (pendingUpdates.size() == 1) {
+            Person p = pendingUpdates.get(0);
+            sender.accept(new Request(CommandType.UPDATE, new Object[]{p.getId(), p, ClientApp.user.getLogin()}));
+        } else if (pendingUpdates.size() > 1) {
+            sender.accept(new Request(CommandType.UPDATE_BATCH,
+                    new Object[]{pendingUpdates.toArray(new Person[0]), ClientApp.user.getLogin()}));
+        }
+        pendingUpdates.clear();
+    }
+
+    /**
+     * Отправляет накопленные подряд идущие команды remove_by_id: одну — как REMOVE_BY_ID,
+     * несколько — одним запросом REMOVE_BATCH.
+     */
+    private void flushRemoves(List<Long> pendingRemoves, Consumer<Request> sender) {
+        if (pendingRemoves.size() == 1) {
+            sender.accept(new Request(CommandType.REMOVE_BY_ID, new Object[]{pendingRemoves.get(0), ClientApp.user.getLogin()}));
+        } else if (pendingRemoves.size() > 1) {
+            long[] ids = pendingRemoves.stream().mapToLong(Long::longValue).toArray();
+            sender.accept(new Request(CommandType.REMOVE_BATCH, new Object[]{ids, ClientApp.user.getLogin()}));
+        }
+        pendingRemoves.clear();
+    }
+
     /**
      * Парсит Person из 10 строк:
      * [0]=name, [1]=coordX, [2]=coordY, [3]=height, [4]=weight,
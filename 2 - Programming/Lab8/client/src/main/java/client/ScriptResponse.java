@@ -30,7 +30,7 @@ public class ScriptResponse {
                                         "Дата последнего изменения коллекции:  " + localizer.getDate(resp.getInfo().getDateOfInit()));
                         DialogManager.inform("Info", message, localizer);
                         continue;
-                    case ADD, ADD_IF_MAX, UPDATE, REMOVE_BY_ID, CLEAR, PRINT_FIELD_ASCENDING_HEIGHT:
+                    case ADD, ADD_BATCH, ADD_IF_MAX, UPDATE, UPDATE_BATCH, REMOVE_BY_ID, REMOVE_BATCH, CLEAR, PRINT_FIELD_ASCENDING_HEIGHT:
                         DialogManager.informScr("Info", localizer.getKeyString(resp.getMessage()), localizer);
                 }
 
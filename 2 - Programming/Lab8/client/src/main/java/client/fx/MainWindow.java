@@ -4,7 +4,9 @@ package client.fx;
 import java.io.File;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import client.ClientApp;
@@ -323,28 +325,27 @@ public class MainWindow extends Window implements DisconnectListener, RefreshCol
     public void executeScript() {
         File file;
         file = DialogManager.getScript(localizer);
-        ConcurrentLinkedQueue<Response> responseQueue = new ConcurrentLinkedQueue<>();
         if (file != null){
-        builder.runScript(file.getPath(), request -> ClientApp.setRequest(request));
-            try {
-                int attempts = 0;
-                Response response = null;
-                while (attempts < 50) {
-                    response = ClientApp.getResponse();
-                    if (response != null) {
-                        responseQueue.offer(response);
-                            ScriptResponse.read(responseQueue, localizer);
-                    }
-                    Thread.sleep(100);
-                    attempts++;
-                }
-                if (!responseQueue.isEmpty()) {
-                    responseQueue.clear();
-                }
-
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+        // Все команды скрипта уходят сразу, ответы собираются по номерам запросов в порядке команд.
+        // На все ответы вместе отводится 5 секунд; ожидание идёт вне потока FX, окно не замирает.
+        List<CompletableFuture<Response>> futures = new ArrayList<>();
+        builder.runScript(file.getPath(), request -> futures.add(ClientApp.send(request)));
+            CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new))
+                    .orTimeout(5, TimeUnit.SECONDS)
+                    .whenComplete((done, error) -> Platform.runLater(() -> {
+                        ConcurrentLinkedQueue<Response> responseQueue = new ConcurrentLinkedQueue<>();
+                        for (CompletableFuture<Response> future : futures) {
+                            if (future.isDone() && !future.isCompletedExceptionally()) {
+                                responseQueue.offer(future.join());
+                            } else {
+                                ClientApp.abandon(future);
+                            }
+                        }
+                        if (error != null) {
+                            DialogManager.alert("Error", localizer);
+                        }
+                        ScriptResponse.read(responseQueue, localizer);
+                    }));
         }
     }
 
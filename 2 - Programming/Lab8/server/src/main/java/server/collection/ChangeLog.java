@@ -0,0 +1,75 @@
+package server.collection;
+
+import shared.dto.ChangeEvent;
+import shared.model.Person;
+
+import java.util.ArrayList;
+
+/**
+ * Журнал последних изменений коллекции с монотонно растущей версией.
+ * Хранит не больше заданного числа событий в кольцевом буфере: событие с версией v лежит
+ * в ячейке v % capacity, поэтому выборка изменений после любой версии не требует поиска.
+ * Клиенту, отставшему сильнее, чем помнит журнал, нужен полный снимок.
+ * Класс не потокобезопасен, синхронизацию обеспечивает {@link CollectionManager}.
+ */
+public class ChangeLog {
+    private final ChangeEvent[] ring;
+    /** Текущая версия коллекции: версия последнего события. */
+    private long version;
+    /** Версия, начиная с которой изменения восстановимы: события после неё лежат в журнале. */
+    private long floor;
+
+    /**
+     * Версии отсчитываются от времени запуска (тысяча на миллисекунду), поэтому версия клиента,
+     * полученная от прошлого запуска сервера, оказывается ниже floor и клиент получает снимок,
+     * а не чужие изменения.
+     *
+     * @param capacity сколько последних событий хранить
+     */
+    public ChangeLog(int capacity) {
+        this.ring = new ChangeEvent[Math.max(1, capacity)];
+        this.version = System.currentTimeMillis() * 1000;
+        this.floor = version;
+    }
+
+    /** @return текущая версия коллекции */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Записывает изменение и увеличивает версию.
+     *
+     * @param person новое состояние объекта; null для удаления
+     */
+    public void append(ChangeEvent.Kind kind, long id, Person person) {
+        version++;
+        ring[(int) (version % ring.length)] = new ChangeEvent(version, kind, id, person);
+        floor = Math.max(floor, version - ring.length);
+    }
+
+    /**
+     * Забывает все события, например после перезагрузки коллекции из базы: версия увеличивается,
+     * и любой клиент получит полный снимок.
+     */
+    public void reset() {
+        version++;
+        floor = version;
+    }
+
+    /**
+     * @param knownVersion версия, которая есть у клиента
+     * @return события после этой версии по порядку или null, если журнал их уже не хранит
+     *         или версия клиента не из этого журнала
+     */
+    public ArrayList<ChangeEvent> since(long knownVersion) {
+        if (knownVersion < floor || knownVersion > version) {
+            return null;
+        }
+        ArrayList<ChangeEvent> changes = new ArrayList<>((int) (version - knownVersion));
+        for (long v = knownVersion + 1; v <= version; v++) {
+            changes.add(ring[(int) (v % ring.length)]);
+        }
+        return changes;
+    }
+}
@@ -1,291 +1,572 @@
 package server.collection;
 
 import server.dataBase.DataBaseManager;
+import server.dataBase.WriteResult;
 import server.logger.DbColorFormatter;
+import server.logger.LogSetup;
+import shared.dto.ChangeEvent;
+import shared.dto.Response;
 import shared.model.Info;
 import shared.model.Person;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 import java.util.logging.*;
 import java.util.stream.Collectors;
 
 public class CollectionManager {
     private static final Logger logger = Logger.getLogger(CollectionManager.class.getName());
-    private static LinkedList<Person> people = new LinkedList<>();
+    /** Кэш коллекции с индексами по id и по владельцу. */
+    private final PersonStore store = new PersonStore();
+    /** Последние изменения кэша; пишется и читается под cacheLock. Размер — свойство collection.changeLogSize. */
+    private final ChangeLog changes = new ChangeLog(Integer.getInteger("collection.changeLogSize", 1024));
     private static final java.time.LocalDateTime creationDate = java.time.LocalDateTime.now();
     private final LocalDateTime localDateTime = LocalDateTime.now();
-    private final ReentrantLock lock = new ReentrantLock();
+    /** Защищает кэш: чтения идут параллельно, изменения кэша — под коротким эксклюзивным захватом. */
+    private final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+    /** Блокировки владельцев: изменения одного пользователя выполняются последовательно, разных — параллельно. */
+    private final ConcurrentHashMap<String, ReentrantLock> ownerLocks = new ConcurrentHashMap<>();
+    /** Изменяющие операции держат его на чтение, сверка с базой — на запись, чтобы видеть завершённое состояние. */
+    private final ReentrantReadWriteLock writersGate = new ReentrantReadWriteLock();
     private final DataBaseManager dbManager;
+    /** Сверять ли кэш с базой после каждого изменения (-Dcollection.consistencyCheck=true). */
+    private static final boolean CONSISTENCY_CHECK = Boolean.getBoolean("collection.consistencyCheck");
+    /** Результаты операций, после которых кэш изменился. */
+    private static final Set<String> CHANGED = Set.of("SuccessAdd", "PersonDataUpdated", "Deleted", "SuccessClear");
 
     public CollectionManager() {
-        this.dbManager = new DataBaseManager();
+        this(new DataBaseManager());
+    }
+
+    /**
+     * @param dbManager слой базы данных, через который проходят изменения и загрузка кэша;
+     *                  бенчмарки передают сюда заглушку в памяти
+     */
+    public CollectionManager(DataBaseManager dbManager) {
+        this.dbManager = dbManager;
         installLogger();
     }
 
-    public void loadCollection(String login) {
-        lock.lock();
+    /**
+     * Загружает коллекцию из базы данных в кэш. Вызывается один раз при старте сервера,
+     * дальше кэш поддерживается в актуальном состоянии изменениями, прошедшими через базу.
+     */
+    public void loadCollection() {
+        cacheLock.writeLock().lock();
         try {
-            people.clear();
-            people = dbManager.loadCache(login, people);
+            store.clear();
+            if (dbManager.streamPeople(null, store::add) < 0) {
+                logger.warning("Коллекция загружена не полностью");
+            }
+            changes.reset();
 
-            logger.info("Коллекция загружена для пользователя: " + login);
+            logger.info("Коллекция загружена в кэш: " + store.size() + " объектов");
         } finally {
-            lock.unlock();
+            cacheLock.writeLock().unlock();
         }
     }
 
+    /**
+     * Сверяет кэш с содержимым таблицы People. При расхождении пишет предупреждение в лог
+     * и перезагружает кэш из базы.
+     *
+     * @return true, если кэш совпадает с базой
+     */
+    public boolean checkConsistency() {
+        writersGate.writeLock().lock();
+        cacheLock.writeLock().lock();
+        try {
+            Map<Long, String> expected = new HashMap<>();
+            if (dbManager.streamPeople(null, p -> expected.put(p.getId(), p.toString())) < 0) {
+                logger.warning("Сверка с базой данных пропущена: таблица не прочитана");
+                return false;
+            }
+            Map<Long, String> actual = new HashMap<>();
+            for (Person p : store.values()) {
+                actual.put(p.getId(), p.toString());
+            }
+            if (expected.equals(actual)) {
+                return true;
+            }
+            logger.warning("Кэш расходится с базой данных (в кэше " + actual.size() + ", в базе " + expected.size() + "), перезагрузка");
+            store.clear();
+            dbManager.streamPeople(null, store::add);
+            changes.reset();
+            return false;
+        } finally {
+            cacheLock.writeLock().unlock();
+            writersGate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Выполняет изменяющую операцию под блокировкой владельца. Запрос к базе идёт без блокировки кэша,
+     * поэтому чтения и изменения других пользователей в это время не ждут.
+     * После успешного изменения запускает сверку с базой, если она включена.
+     *
+     * @param user_login владелец изменяемых объектов
+     * @param operation операция, возвращающая код результата
+     * @return код результата операции
+     */
+    private String mutate(String user_login, Supplier<String> operation) {
+        ReentrantLock ownerLock = ownerLocks.computeIfAbsent(String.valueOf(user_login), k -> new ReentrantLock());
+        String result;
+        writersGate.readLock().lock();
+        ownerLock.lock();
+        try {
+            result = operation.get();
+        } finally {
+            ownerLock.unlock();
+            writersGate.readLock().unlock();
+        }
+        if (CONSISTENCY_CHECK && CHANGED.contains(result)) {
+            checkConsistency();
+        }
+        return result;
+    }
+
     public String add(Person person, String user_login) {
-        lock.lock();
+        return mutate(user_login, () -> insert(person, user_login));
+    }
+
+    /**
+     * Вставляет объект в базу и, при успехе, в кэш. Вызывается под блокировкой владельца.
+     */
+    private String insert(Person person, String user_login) {
+        cacheLock.readLock().lock();
         try {
-            loadCollection(user_login);
-            boolean alreadyExists = people.stream()
-                    .anyMatch(p -> p.equals(person));
-            if (alreadyExists) {
+            if (store.contains(person)) {
                 return "AlreadyExists";
             }
-            // Добавление в базу данных
-            Long id = dbManager.addPerson(person, user_login);
-            if (id != null) {
-                person.setId(id);
-                person.setUser_login(user_login);
-                people.add(person);
-
-                return "SuccessAdd";
-            } else {
+        } finally {
+            cacheLock.readLock().unlock();
+        }
+        // Добавление в базу данных
+        Long id = dbManager.addPerson(person, user_login);
+        if (id != null) {
+            person.setId(id);
+            person.setUser_login(user_login);
+            cacheLock.writeLock().lock();
+            try {
+                store.add(person);
+                changes.append(ChangeEvent.Kind.ADDED, id, person);
+            } finally {
+                cacheLock.writeLock().unlock();
+            }
+
+            return "SuccessAdd";
+        } else {
+            return "DBerror";
+        }
+    }
+
+    /**
+     * Добавляет несколько объектов одной транзакцией в базе.
+     *
+     * @param persons добавляемые объекты
+     * @param user_login владелец
+     * @return SuccessAdd, если добавлены все объекты, иначе DBerror (в базе и в кэше ничего не меняется)
+     */
+    public String addAll(List<Person> persons, String user_login) {
+        if (persons.isEmpty()) {
+            return "SuccessAdd";
+        }
+        return mutate(user_login, () -> {
+            List<Long> ids = dbManager.addPersons(persons, user_login);
+            if (ids == null) {
                 return "DBerror";
             }
-        } finally {
-            lock.unlock();
+            cacheLock.writeLock().lock();
+            try {
+                for (int i = 0; i < persons.size(); i++) {
+                    Person person = persons.get(i);
+                    person.setId(ids.get(i));
+                    person.setUser_login(user_login);
+                    store.add(person);
+                    changes.append(ChangeEvent.Kind.ADDED, person.getId(), person);
+                }
+            } finally {
+                cacheLock.writeLock().unlock();
+            }
+            return "SuccessAdd";
+        });
+    }
+
+    /**
+     * Обновляет несколько объектов владельца одной транзакцией в базе.
+     *
+     * @param persons новые значения по id в порядке обновления
+     * @param user_login владелец
+     * @return PersonDataUpdated, если обновлены все объекты; NoSuchPerson, если часть объектов не нашлась
+     *         или чужая (остальные обновлены); DBerror при ошибке базы (в базе и в кэше ничего не меняется)
+     */
+    public String updateAll(Map<Long, Person> persons, String user_login) {
+        if (persons.isEmpty()) {
+            return "PersonDataUpdated";
+        }
+        return mutate(user_login, () -> {
+            int[] updated = dbManager.updatePersons(persons, user_login);
+            if (updated == null) {
+                return "DBerror";
+            }
+            boolean all = true;
+            cacheLock.writeLock().lock();
+            try {
+                int i = 0;
+                for (Map.Entry<Long, Person> entry : persons.entrySet()) {
+                    if (updated[i++] == 0) {
+                        all = false;
+                        continue;
+                    }
+                    long id = entry.getKey();
+                    Person newPerson = entry.getValue();
+                    store.removeOwned(id, user_login);
+                    newPerson.setId(id);
+                    newPerson.setUser_login(user_login);
+                    store.add(newPerson);
+                    changes.append(ChangeEvent.Kind.UPDATED, id, newPerson);
+                }
+            } finally {
+                cacheLock.writeLock().unlock();
+            }
+            return all ? "PersonDataUpdated" : "NoSuchPerson";
+        });
+    }
+
+    /**
+     * Удаляет несколько объектов владельца одной транзакцией в базе.
+     *
+     * @param ids id удаляемых объектов
+     * @param user_login владелец
+     * @return Deleted, если удалены все объекты; NoSuchPerson, если часть объектов не нашлась
+     *         или чужая (остальные удалены); DBerror при ошибке базы (в базе и в кэше ничего не меняется)
+     */
+    public String removeAll(List<Long> ids, String user_login) {
+        if (ids.isEmpty()) {
+            return "Deleted";
         }
+        return mutate(user_login, () -> {
+            int[] removed = dbManager.removePersons(ids, user_login);
+            if (removed == null) {
+                return "DBerror";
+            }
+            boolean all = true;
+            cacheLock.writeLock().lock();
+            try {
+                for (int i = 0; i < ids.size(); i++) {
+                    if (removed[i] == 0) {
+                        all = false;
+                    } else if (store.removeOwned(ids.get(i), user_login) != null) {
+                        changes.append(ChangeEvent.Kind.REMOVED, ids.get(i), null);
+                    }
+                }
+            } finally {
+                cacheLock.writeLock().unlock();
+            }
+            return all ? "Deleted" : "NoSuchPerson";
+        });
     }
 
     public String updateId(long id, Person newPerson, String user_login) {
-        lock.lock();
-        try {
-            loadCollection(user_login);
-            boolean updated = dbManager.updatePerson(id, newPerson, user_login);
-            if (updated) {
-                boolean success = people.removeIf(p -> p.getId() == id && p.getUserLogin().equals(user_login));
-                if (success) {
+        return mutate(user_login, () -> {
+            WriteResult updated = dbManager.updatePerson(id, newPerson, user_login);
+            if (updated == WriteResult.OK) {
+                cacheLock.writeLock().lock();
+                try {
+                    store.removeOwned(id, user_login);
                     newPerson.setId(id);
                     newPerson.setUser_login(user_login);
-                    people.add(newPerson);
+                    store.add(newPerson);
+                    changes.append(ChangeEvent.Kind.UPDATED, id, newPerson);
 
                     return "PersonDataUpdated";
-                } else {
-                    return "NoSuchPerson";
+                } finally {
+                    cacheLock.writeLock().unlock();
                 }
+            } else if (updated == WriteResult.NOT_FOUND) {
+                return "NoSuchPerson";
             } else {
                 return "DBerror";
             }
-        } finally {
-            lock.unlock();
-        }
+        });
     }
 
     public String removeById(long id, String user_login) {
-        lock.lock();
-        try {
-            loadCollection(user_login);
-            boolean removed = dbManager.removePerson(id, user_login);
-            if (removed) {
-                boolean success = people.removeIf(p -> p.getId() == id && p.getUserLogin().equals(user_login));
-                if (success) {
+        return mutate(user_login, () -> {
+            WriteResult removed = dbManager.removePerson(id, user_login);
+            if (removed == WriteResult.OK) {
+                cacheLock.writeLock().lock();
+                try {
+                    if (store.removeOwned(id, user_login) != null) {
+                        changes.append(ChangeEvent.Kind.REMOVED, id, null);
+                    }
                     return "Deleted";
-                } else {
-                    return "NoSuchPerson";
+                } finally {
+                    cacheLock.writeLock().unlock();
                 }
+            } else if (removed == WriteResult.NOT_FOUND) {
+                return "NoSuchPerson";
             } else {
                 return "DBerror";
             }
-        } finally {
-            lock.unlock();
-        }
+        });
     }
 
     public Info info(String user_login) {
-        lock.lock();
+        cacheLock.readLock().lock();
         try{
-            loadCollection(user_login);
-            return new Info( people.size(), "LinkedList<Person>", creationDate, people.stream().filter(d -> d.getUserLogin().equals((user_login))).count());
+            return new Info(store.size(), "LinkedList<Person>", creationDate, store.countOf(user_login));
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
         }
     }
 
     public String clear(String user_login) {
-        lock.lock();
-        try {
-            loadCollection(user_login);
+        return mutate(user_login, () -> {
             boolean cleared = dbManager.clear(user_login);
             if (cleared) {
-                int initialSize = people.size();
-                people.removeIf(p -> p.getUserLogin().equals(user_login));
-                if (initialSize > people.size()) {
-                    return "SuccessClear";
-                } else {
-                    return "NoOneToClear";
+                cacheLock.writeLock().lock();
+                try {
+                    Collection<Person> removed = store.removeOwner(user_login);
+                    for (Person person : removed) {
+                        changes.append(ChangeEvent.Kind.REMOVED, person.getId(), null);
+                    }
+                    if (!removed.isEmpty()) {
+                        return "SuccessClear";
+                    } else {
+                        return "NoOneToClear";
+                    }
+                } finally {
+                    cacheLock.writeLock().unlock();
                 }
             } else {
                 return "DBerror";
             }
-        } finally {
-            lock.unlock();
-        }
+        });
     }
 
+    /**
+     * Добавляет объект, если его рост больше роста всех объектов владельца (для гостя — всей коллекции).
+     * Проверка и вставка выполняются под одной блокировкой владельца: объекты владельца меняются
+     * только внутри {@link #mutate}, а перезагрузка кэша ждёт writersGate, поэтому между проверкой
+     * и вставкой максимум владельца измениться не может. Максимум гостя зависит от изменений всех
+     * пользователей, поэтому его вставка держит writersGate на запись и исключает любые другие изменения.
+     */
     public String addIfMax(Person person, String user_login) {
-        lock.lock();
+        if (user_login != null) {
+            return mutate(user_login, () -> insertIfMax(person, user_login));
+        }
+        String result;
+        writersGate.writeLock().lock();
         try {
-            loadCollection(user_login);
-            boolean alreadyExists = people.stream()
-                    .anyMatch(p -> p.equals(person));
-            if (alreadyExists) {
-                return "AlreadyExists";
-            }
-            boolean isMax = people.isEmpty() ||
-                    people.stream().allMatch(p -> person.getHeight() > p.getHeight());
-            if (isMax) {
-                Long id = dbManager.addPerson(person, user_login);
-                if (id != null) {
-                    person.setId(id);
-                    person.setUser_login(user_login);
-                    people.add(person);
+            result = insertIfMax(person, null);
+        } finally {
+            writersGate.writeLock().unlock();
+        }
+        if (CONSISTENCY_CHECK && CHANGED.contains(result)) {
+            checkConsistency();
+        }
+        return result;
+    }
 
-                    return "SuccessAdd";
-                } else {
-                    return "DBerror";
-                }
+    private String insertIfMax(Person person, String user_login) {
+        boolean isMax;
+        cacheLock.readLock().lock();
+        try {
+            if (user_login == null) {
+                isMax = store.isEmpty() || person.getHeight() > store.maxHeight();
             } else {
-                return "NotMaximal";
+                isMax = store.countOf(user_login) == 0 || person.getHeight() > store.maxHeightOf(user_login);
             }
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
+        }
+        if (isMax) {
+            return insert(person, user_login);
+        } else {
+            return "NotMaximal";
         }
     }
 
     public String removeHead(String user_login) {
-        lock.lock();
-        try {
-            loadCollection(user_login);
-            Person head = people.stream()
-                    .filter(p -> p.getUserLogin().equals(user_login))
-                    .findFirst()
-                    .orElse(null);
+        return mutate(user_login, () -> {
+            Person head;
+            cacheLock.readLock().lock();
+            try {
+                head = store.firstOf(user_login);
+            } finally {
+                cacheLock.readLock().unlock();
+            }
             if (head == null) {
                 return "NoOneToRemove";
             }
-            boolean removed = dbManager.removePerson(head.getId(), user_login);
-            if (removed) {
-                people.remove(head);
-                return "Deleted";
+            WriteResult removed = dbManager.removePerson(head.getId(), user_login);
+            if (removed != WriteResult.ERROR) {
+                cacheLock.writeLock().lock();
+                try {
+                    if (store.remove(head.getId()) != null) {
+                        changes.append(ChangeEvent.Kind.REMOVED, head.getId(), null);
+                    }
+                } finally {
+                    cacheLock.writeLock().unlock();
+                }
+                return removed == WriteResult.OK ? "Deleted" : "NoOneToRemove";
             } else {
                 return "DBerror";
             }
-        } finally {
-            lock.unlock();
-        }
+        });
     }
 
     public String show(){
-        lock.lock();
+        cacheLock.readLock().lock();
         try {
-            LinkedList<Person> showList = dbManager.loadCache(null, new LinkedList<>());
-            if (showList.isEmpty()) {
+            if (store.isEmpty()) {
                 return "CollectionEmpty";
             }
-            return showList.stream()
+            return store.values().stream()
                     .sorted(Comparator.comparing(Person::getName))
                     .map(Person::toString)
                     .collect(Collectors.joining("\n"));
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
         }
     }
 
     public String infoString() {
-        lock.lock();
+        cacheLock.readLock().lock();
         try {
             return String.format("Тип коллекции: %s\nДата инициализации: %s\nКоличество элементов: %d",
-                    people.getClass().getName(), localDateTime, people.size());
+                    LinkedList.class.getName(), localDateTime, store.size());
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
         }
     }
 
     public String averageOfHeight(String user_login) {
-        lock.lock();
+        cacheLock.readLock().lock();
         try {
-            loadCollection(user_login);
-            if (people.isEmpty()) {
+            if (noneVisible(user_login)) {
                 return "EmptyCollection";
             }
-            double average = people.stream()
-                    .mapToDouble(Person::getHeight)
-                    .average()
-                    .orElse(0.0);
-            return String.valueOf(average);
+            return String.valueOf(user_login == null ? store.averageHeight() : store.averageHeightOf(user_login));
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
         }
     }
 
     public String printAscending() {
-        lock.lock();
+        cacheLock.readLock().lock();
         try {
-            if (people.isEmpty()) {
+            if (store.isEmpty()) {
                 return "EmptyCollection";
             }
-            return people.stream()
-                    .sorted(Comparator.comparing(Person::getHeight))
-                    .map(Person::toString)
-                    .collect(Collectors.joining("\n"));
+            StringJoiner joiner = new StringJoiner("\n");
+            for (Person person : store.ascendingByHeight()) {
+                joiner.add(person.toString());
+            }
+            return joiner.toString();
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
         }
     }
 
     public String printFieldAscendingHeight(String user_login) {
-        lock.lock();
+        cacheLock.readLock().lock();
         try {
-            loadCollection(user_login);
-            if (people.isEmpty()) {
+            if (noneVisible(user_login)) {
                 return "EmptyCollection";
             }
-            return people.stream()
-                    .map(Person::getHeight)
-                    .sorted()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining("\n"));
+            StringJoiner joiner = new StringJoiner("\n");
+            for (Person person : user_login == null ? store.ascendingByHeight() : store.ascendingByHeightOf(user_login)) {
+                joiner.add(String.valueOf(person.getHeight()));
+            }
+            return joiner.toString();
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
         }
     }
 
+    /**
+     * Гость (user_login == null) без регистрации работает с общей коллекцией: head, average_of_height
+     * и print_field_ascending_height показывают ему все объекты, пользователю — только его собственные.
+     *
+     * @return true, если пользователю не видно ни одного объекта
+     */
+    private boolean noneVisible(String user_login) {
+        return user_login == null ? store.isEmpty() : store.countOf(user_login) == 0;
+    }
+
     public String head(String user_login) {
-        lock.lock();
+        cacheLock.readLock().lock();
         try {
-            loadCollection(user_login);
-            return people.stream()
-                    .findFirst()
-                    .map(Person::toString)
-                    .orElse("EmptyCollection");
+            Person first = user_login == null ? store.first() : store.firstOf(user_login);
+            return first != null ? first.toString() : "EmptyCollection";
+        } finally {
+            cacheLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Дополняет ответ состоянием коллекции для клиента: изменениями после известной ему версии
+     * или полным снимком, если журнал их уже не хранит или снимок не длиннее списка изменений.
+     * Версия ответа и его содержимое берутся под одной блокировкой и соответствуют друг другу.
+     *
+     * @param response ответ, в который кладутся изменения или снимок и версия
+     * @param knownVersion версия коллекции у клиента (0 — коллекции у клиента нет)
+     */
+    public void attachChanges(Response response, long knownVersion) {
+        cacheLock.readLock().lock();
+        try {
+            ArrayList<ChangeEvent> delta = changes.since(knownVersion);
+            if (delta != null && delta.size() < store.size()) {
+                response.setChanges(delta);
+            } else {
+                response.setPersons(new LinkedList<>(store.values()));
+            }
+            response.setVersion(changes.version());
+        } finally {
+            cacheLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return менеджер базы данных коллекции; команды пользуются им же, а не создают свой
+     */
+    public DataBaseManager getDataBaseManager() {
+        return dbManager;
+    }
+
+    /**
+     * @return текущая версия коллекции
+     */
+    public long getVersion() {
+        cacheLock.readLock().lock();
+        try {
+            return changes.version();
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
         }
     }
 
     public LinkedList<Person> getPeople() {
-        lock.lock();
+        cacheLock.readLock().lock();
         try {
-            loadCollection(null);
-            return new LinkedList<>(people);
+            return new LinkedList<>(store.values());
         } finally {
-            lock.unlock();
+            cacheLock.readLock().unlock();
         }
     }
 
@@ -330,24 +611,7 @@ public class CollectionManager {
 
     private static void installLogger() {
         try {
-
-            for (Handler handler : logger.getHandlers()) {
-                if (handler instanceof FileHandler) {
-                    return;
-                }
-            }
-            FileHandler fileHandler = new FileHandler("data.log", true);
-            fileHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(fileHandler);
-
-            // Настройка ConsoleHandler для цветного вывода
-            ConsoleHandler consoleHandler = new ConsoleHandler();
-            consoleHandler.setFormatter(new DbColorFormatter());
-            logger.addHandler(consoleHandler);
-
-            // Установка уровня логирования
-            logger.setLevel(Level.ALL);
-            logger.setUseParentHandlers(false); // Отключаем дефолтный консольный обработчик
+            LogSetup.install(logger, "data.log", new DbColorFormatter());
         } catch (IOException e) {
             logger.severe("Ошибка настройки логирования базы данных: " + e.getMessage());
         }
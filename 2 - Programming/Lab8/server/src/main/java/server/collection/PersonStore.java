@@ -0,0 +1,241 @@
+package server.collection;
+
+import shared.model.Person;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Хранилище объектов {@link Person} в памяти сервера, разбитое по владельцам.
+ * Поиск по id и по владельцу выполняется за O(1) и не зависит от общего размера коллекции,
+ * индекс по росту даёт максимум за O(log n) и обход по возрастанию без сортировки,
+ * сумма роста поддерживается при каждом изменении, поэтому средний рост считается за O(1).
+ * Те же индекс и сумма ведутся для каждого владельца отдельно: команды head, average_of_height,
+ * print_field_ascending_height и add_if_max пользователя видят только его объекты, а гостя — всю коллекцию.
+ * Порядок обхода совпадает с порядком добавления: обновлённый объект переходит в конец, как и в базе.
+ * Класс не потокобезопасен, синхронизацию обеспечивает {@link CollectionManager}.
+ */
+public class PersonStore {
+    /** Все объекты по id в порядке добавления. */
+    private final LinkedHashMap<Long, Person> byId = new LinkedHashMap<>();
+    /** Объекты каждого владельца с его индексами. */
+    private final Map<String, Owned> byOwner = new HashMap<>();
+    /** Все объекты, упорядоченные по (height, id). */
+    private final TreeSet<Person> byHeight = new TreeSet<>(new HeightComparator());
+    /** Сумма роста всех объектов, обновляется при каждом изменении. */
+    private long heightSum = 0;
+
+    /**
+     * Добавляет объект. Объект с тем же id заменяется.
+     *
+     * @param person объект с заполненными id и владельцем
+     */
+    public void add(Person person) {
+        remove(person.getId());
+        byId.put(person.getId(), person);
+        byHeight.add(person);
+        heightSum += person.getHeight();
+        byOwner.computeIfAbsent(person.getUserLogin(), k -> new Owned()).add(person);
+    }
+
+    /**
+     * Добавляет все объекты по порядку.
+     */
+    public void addAll(Collection<Person> people) {
+        for (Person person : people) {
+            add(person);
+        }
+    }
+
+    /**
+     * @return объект с данным id или null
+     */
+    public Person get(long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @return true, если именно этот объект уже лежит в хранилище
+     */
+    public boolean contains(Person person) {
+        return byId.get(person.getId()) == person;
+    }
+
+    /**
+     * Удаляет объект по id.
+     *
+     * @return удалённый объект или null
+     */
+    public Person remove(long id) {
+        Person removed = byId.remove(id);
+        if (removed != null) {
+            byHeight.remove(removed);
+            heightSum -= removed.getHeight();
+            Owned owned = byOwner.get(removed.getUserLogin());
+            if (owned != null) {
+                owned.remove(removed);
+                if (owned.byId.isEmpty()) {
+                    byOwner.remove(removed.getUserLogin());
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Удаляет объект, если он принадлежит указанному владельцу.
+     *
+     * @return удалённый объект или null, если объекта нет или он чужой
+     */
+    public Person removeOwned(long id, String owner) {
+        Person person = getOwned(id, owner);
+        return person == null ? null : remove(id);
+    }
+
+    /**
+     * @return объект владельца с данным id или null
+     */
+    public Person getOwned(long id, String owner) {
+        Owned owned = byOwner.get(owner);
+        return owned == null ? null : owned.byId.get(id);
+    }
+
+    /**
+     * Удаляет все объекты владельца.
+     *
+     * @return удалённые объекты (пусто, если у владельца ничего не было)
+     */
+    public Collection<Person> removeOwner(String owner) {
+        Owned owned = byOwner.remove(owner);
+        if (owned == null) {
+            return Collections.emptyList();
+        }
+        for (Person person : owned.byId.values()) {
+            byId.remove(person.getId());
+            byHeight.remove(person);
+            heightSum -= person.getHeight();
+        }
+        return owned.byId.values();
+    }
+
+    /**
+     * @return первый добавленный объект коллекции или null
+     */
+    public Person first() {
+        Iterator<Person> it = byId.values().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * @return первый добавленный объект владельца или null
+     */
+    public Person firstOf(String owner) {
+        Owned owned = byOwner.get(owner);
+        if (owned == null) {
+            return null;
+        }
+        Iterator<Person> it = owned.byId.values().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * @return количество объектов владельца
+     */
+    public int countOf(String owner) {
+        Owned owned = byOwner.get(owner);
+        return owned == null ? 0 : owned.byId.size();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    /**
+     * @return все объекты в порядке добавления (только для чтения)
+     */
+    public Collection<Person> values() {
+        return Collections.unmodifiableCollection(byId.values());
+    }
+
+    /**
+     * @return все объекты в порядке возрастания роста (только для чтения)
+     */
+    public Collection<Person> ascendingByHeight() {
+        return Collections.unmodifiableSet(byHeight);
+    }
+
+    /**
+     * @return наибольший рост в коллекции; коллекция не должна быть пустой
+     */
+    public int maxHeight() {
+        return byHeight.last().getHeight();
+    }
+
+    /**
+     * @return средний рост по коллекции; коллекция не должна быть пустой
+     */
+    public double averageHeight() {
+        return (double) heightSum / byId.size();
+    }
+
+    /**
+     * @return наибольший рост среди объектов владельца; у владельца должны быть объекты
+     */
+    public int maxHeightOf(String owner) {
+        return byOwner.get(owner).byHeight.last().getHeight();
+    }
+
+    /**
+     * @return объекты владельца в порядке возрастания роста (только для чтения, пусто, если объектов нет)
+     */
+    public Collection<Person> ascendingByHeightOf(String owner) {
+        Owned owned = byOwner.get(owner);
+        return owned == null ? Collections.emptySet() : Collections.unmodifiableSet(owned.byHeight);
+    }
+
+    /**
+     * @return средний рост объектов владельца; у владельца должны быть объекты
+     */
+    public double averageHeightOf(String owner) {
+        Owned owned = byOwner.get(owner);
+        return (double) owned.heightSum / owned.byId.size();
+    }
+
+    public void clear() {
+        byId.clear();
+        byHeight.clear();
+        heightSum = 0;
+        byOwner.clear();
+    }
+
+    /**
+     * Объекты одного владельца: по id в порядке добавления, по росту и сумма роста.
+     */
+    private static class Owned {
+        final LinkedHashMap<Long, Person> byId = new LinkedHashMap<>();
+        final TreeSet<Person> byHeight = new TreeSet<>(new HeightComparator());
+        long heightSum = 0;
+
+        void add(Person person) {
+            byId.put(person.getId(), person);
+            byHeight.add(person);
+            heightSum += person.getHeight();
+        }
+
+        void remove(Person person) {
+            if (byId.remove(person.getId()) != null) {
+                byHeight.remove(person);
+                heightSum -= person.getHeight();
+            }
+        }
+    }
+}
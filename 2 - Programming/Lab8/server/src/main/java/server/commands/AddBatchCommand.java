@@ -0,0 +1,40 @@
+package server.commands;
+
+import shared.commands.Command;
+import shared.dto.CommandType;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+import shared.model.Person;
+import server.collection.CollectionManager;
+
+import java.util.Arrays;
+
+/**
+ * Команда `add` для нескольких элементов сразу.
+ * Клиент отправляет её при выполнении скрипта с подряд идущими командами add,
+ * все элементы добавляются в базу одной транзакцией.
+ */
+public class AddBatchCommand implements Command {
+    private final CollectionManager cm;
+
+    public AddBatchCommand(CollectionManager cm) {
+        this.cm = cm;
+    }
+
+    /**
+     * @param args массив {@link Person} и логин владельца
+     * @return ответ REFRESH с результатом; изменения коллекции прикладывает {@link server.serverUtil.CommandDispatcher}
+     */
+    @Override
+    public Response execute(Object[] args) {
+        Person[] persons = (Person[]) args[0];
+        String login = (String) args[1];
+        String message = cm.addAll(Arrays.asList(persons), login);
+        return new Response(ResponseStatus.REFRESH, message, CommandType.ADD_BATCH);
+    }
+
+    @Override
+    public String getDescription() {
+        return "";
+    }
+}
@@ -8,7 +8,6 @@ import shared.model.Person;
 import server.collection.CollectionManager;
 import server.dataBase.DataBaseManager;
 
-import java.util.LinkedList;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class AddCommand implements Command {
@@ -23,8 +22,7 @@ public class AddCommand implements Command {
         Person person = (Person) args[0];
         String login = (String) args[1];
         String message = cm.add(person, login);
-        LinkedList<Person> people = cm.getPeople();
-        return new Response(ResponseStatus.REFRESH, message, CommandType.ADD, people);
+        return new Response(ResponseStatus.REFRESH, message, CommandType.ADD);
     }
 
     @Override
@@ -5,6 +5,7 @@ import server.collection.CollectionManager;
 import server.dataBase.DataBaseManager;
 import shared.commands.Command;
 import shared.dto.Response;
+import shared.dto.ResponseStatus;
 
 public class AuthenticateCommand implements Command {
 
@@ -13,7 +14,7 @@ public class AuthenticateCommand implements Command {
 
         public AuthenticateCommand(CollectionManager cm) {
             this.cm = cm;
-            this.dbManager = new DataBaseManager();
+            this.dbManager = cm.getDataBaseManager();
         }
 
     @Override
@@ -21,8 +22,13 @@ public class AuthenticateCommand implements Command {
 
         String login = (String) args[0];
         String hashedPassword = (String) args[1];
+        // Третий аргумент необязателен: false — войти без снимка коллекции, клиент запросит его позже
+        boolean withCollection = args.length < 3 || !Boolean.FALSE.equals(args[2]);
 
         Response response = dbManager.authenticate(login, hashedPassword);
+        if (withCollection && response.getStatus() == ResponseStatus.REFRESH) {
+            cm.attachChanges(response, 0);
+        }
 
         return response;
     }
@@ -1,9 +1,18 @@
 package server.commands;
 
+import server.collection.CollectionManager;
 import shared.commands.Command;
+import shared.dto.CommandType;
+
+import java.lang.reflect.Constructor;
+import java.util.EnumMap;
 
 public class CommandsList {
 
+    /**
+     * Команды сервера: класс реализации и ключ описания для help (пустой — команда в help не выводится).
+     * Имя элемента совпадает с {@link CommandType}.
+     */
     public enum CommandT {
         HELP(HelpCommand.class, "helpHelp"),
         INFO(InfoCommand.class, "infoHelp"),
@@ -14,7 +23,16 @@ public class CommandsList {
         HEAD(HeadCommand.class, "headHelp"),
         ADD_IF_MAX(AddIfMaxCommand.class, "addIfMaxHelp"),
         AVERAGE_OF_HEIGHT(AverageOfHeightCommand.class, "averageOfHeightHelp"),
-        PRINT_ASCENDING(PrintAscendingCommand.class, "printAscendingHelp");
+        PRINT_ASCENDING(PrintAscendingCommand.class, "printAscendingHelp"),
+        SHOW(ShowCommand.class, ""),
+        PRINT_FIELD_ASCENDING_HEIGHT(PrintFieldAscendingHeightCommand.class, ""),
+        REMOVE_HEAD(RemoveHeadCommand.class, ""),
+        REGISTRATION(RegistrationCommand.class, ""),
+        AUTHENTICATE(AuthenticateCommand.class, ""),
+        ADD_BATCH(AddBatchCommand.class, ""),
+        SUBSCRIBE(SubscribeCommand.class, ""),
+        UPDATE_BATCH(UpdateBatchCommand.class, ""),
+        REMOVE_BATCH(RemoveBatchCommand.class, "");
 
 
 
@@ -33,5 +51,38 @@ public class CommandsList {
         public String getDescription() {
             return description;
         }
+
+        public CommandType getType() {
+            return CommandType.valueOf(name());
+        }
+    }
+
+    /**
+     * Создаёт по одному экземпляру каждой команды. Команды не хранят состояния между вызовами,
+     * поэтому один экземпляр обслуживает все запросы из любых потоков.
+     * Класс команды должен иметь конструктор от {@link CollectionManager} или конструктор без параметров.
+     *
+     * @param cm менеджер коллекции, общий для всех команд
+     * @return команды по типу
+     * @throws IllegalStateException если команду не удалось создать
+     */
+    public static EnumMap<CommandType, Command> instantiate(CollectionManager cm) {
+        EnumMap<CommandType, Command> commands = new EnumMap<>(CommandType.class);
+        for (CommandT entry : CommandT.values()) {
+            Class<? extends Command> type = entry.getExecutableClass();
+            try {
+                Command command;
+                try {
+                    Constructor<? extends Command> constructor = type.getConstructor(CollectionManager.class);
+                    command = constructor.newInstance(cm);
+                } catch (NoSuchMethodException e) {
+                    command = type.getConstructor().newInstance();
+                }
+                commands.put(entry.getType(), command);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Не удалось создать команду " + entry + ": " + e, e);
+            }
+        }
+        return commands;
     }
 }
@@ -24,7 +24,6 @@ public class InfoCommand implements Command {
     @Override
     public Response execute(Object[] args) {
         String login = (String) args[0];
-        cm.loadCollection(login);
         return new Response(ResponseStatus.OK, cm.info(login), CommandType.INFO);
     }
 
@@ -30,9 +30,6 @@ public class PrintAscendingCommand implements Command {
      */
     @Override
     public Response execute(Object[] args) {
-
-            String login = (String) args[0];
-            cm.loadCollection(login);
             return new Response(ResponseStatus.OK, cm.printAscending(), CommandType.PRINT_ASCENDING);
         }
 
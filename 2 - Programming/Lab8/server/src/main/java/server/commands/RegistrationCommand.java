@@ -13,7 +13,7 @@ public class RegistrationCommand implements Command {
 
     public RegistrationCommand(CollectionManager cm) {
         this.cm = cm;
-        this.dbManager = new DataBaseManager();
+        this.dbManager = cm.getDataBaseManager();
     }
 
     @Override
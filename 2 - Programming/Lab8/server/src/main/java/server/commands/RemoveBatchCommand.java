@@ -0,0 +1,44 @@
+package server.commands;
+
+import shared.commands.Command;
+import shared.dto.CommandType;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+import server.collection.CollectionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Команда `remove_by_id` для нескольких элементов сразу.
+ * Клиент отправляет её при выполнении скрипта с подряд идущими командами remove_by_id,
+ * все элементы удаляются из базы одной транзакцией.
+ */
+public class RemoveBatchCommand implements Command {
+    private final CollectionManager cm;
+
+    public RemoveBatchCommand(CollectionManager cm) {
+        this.cm = cm;
+    }
+
+    /**
+     * @param args массив id (long[]) и логин владельца
+     * @return ответ REFRESH с результатом; изменения коллекции прикладывает {@link server.serverUtil.CommandDispatcher}
+     */
+    @Override
+    public Response execute(Object[] args) {
+        long[] ids = (long[]) args[0];
+        String login = (String) args[1];
+        List<Long> list = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            list.add(id);
+        }
+        String message = cm.removeAll(list, login);
+        return new Response(ResponseStatus.REFRESH, message, CommandType.REMOVE_BATCH);
+    }
+
+    @Override
+    public String getDescription() {
+        return "";
+    }
+}
@@ -6,9 +6,7 @@ import server.collection.CollectionManager;
 import shared.dto.CommandType;
 import shared.dto.Response;
 import shared.dto.ResponseStatus;
-import shared.model.Person;
 
-import java.util.LinkedList;
 
 /**
  * Удаляет элемент по заданному ID.
@@ -33,10 +31,8 @@ public class RemoveByIdCommand implements Command {
 
         long id = (Long) args[0];
         String login = (String) args[1];
-        cm.loadCollection(login);
         String message = cm.removeById(id, login);
-        LinkedList<Person> people = cm.getPeople();
-        return new Response(ResponseStatus.REFRESH, message, CommandType.REMOVE_BY_ID, people);
+        return new Response(ResponseStatus.REFRESH, message, CommandType.REMOVE_BY_ID);
     }
 
     /**
@@ -0,0 +1,24 @@
+package server.commands;
+
+import shared.commands.Command;
+import shared.dto.CommandType;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+
+/**
+ * Подписка соединения на изменения коллекции. Сама команда только подтверждает подписку:
+ * изменения после версии клиента к ответу прикладывает {@link server.serverUtil.CommandDispatcher},
+ * а соединение запоминает {@link server.serverUtil.ChangeBroadcaster}.
+ */
+public class SubscribeCommand implements Command {
+
+    @Override
+    public Response execute(Object[] args) {
+        return new Response(ResponseStatus.REFRESH, "Подписка на изменения коллекции оформлена", CommandType.SUBSCRIBE);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Подписка на изменения коллекции";
+    }
+}
@@ -0,0 +1,45 @@
+package server.commands;
+
+import shared.commands.Command;
+import shared.dto.CommandType;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+import shared.model.Person;
+import server.collection.CollectionManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Команда `update` для нескольких элементов сразу.
+ * Клиент отправляет её при выполнении скрипта с подряд идущими командами update,
+ * все элементы обновляются в базе одной транзакцией.
+ */
+public class UpdateBatchCommand implements Command {
+    private final CollectionManager cm;
+
+    public UpdateBatchCommand(CollectionManager cm) {
+        this.cm = cm;
+    }
+
+    /**
+     * @param args массив {@link Person} с id обновляемых элементов и логин владельца
+     * @return ответ REFRESH с результатом; изменения коллекции прикладывает {@link server.serverUtil.CommandDispatcher}
+     */
+    @Override
+    public Response execute(Object[] args) {
+        Person[] persons = (Person[]) args[0];
+        String login = (String) args[1];
+        Map<Long, Person> byId = new LinkedHashMap<>();
+        for (Person person : persons) {
+            byId.put(person.getId(), person);
+        }
+        String message = cm.updateAll(byId, login);
+        return new Response(ResponseStatus.REFRESH, message, CommandType.UPDATE_BATCH);
+    }
+
+    @Override
+    public String getDescription() {
+        return "";
+    }
+}
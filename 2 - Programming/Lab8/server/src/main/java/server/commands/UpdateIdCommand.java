@@ -8,8 +8,6 @@ import shared.model.Person;
 import server.collection.CollectionManager;
 import server.dataBase.DataBaseManager;
 
-import java.util.LinkedList;
-
 public class UpdateIdCommand implements Command {
     private final CollectionManager cm;
 
@@ -22,10 +20,8 @@ public class UpdateIdCommand implements Command {
         long id = (Long) args[0];
         Person newPerson = (Person) args[1];
         String login = (String) args[2];
-        cm.loadCollection(login);
         String message = cm.updateId(id, newPerson, login);
-        LinkedList<Person> people = cm.getPeople();
-        return new Response(ResponseStatus.REFRESH, message, CommandType.UPDATE, people);
+        return new Response(ResponseStatus.REFRESH, message, CommandType.UPDATE);
     }
 
     @Override
@@ -0,0 +1,86 @@
+package server.dataBase;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кэш хешей паролей по логину.
+ * Повторный вход того же пользователя проверяется без запроса к базе,
+ * запись живёт не дольше заданного времени и число записей ограничено.
+ */
+public class AuthCache {
+    /** Время жизни записи в миллисекундах. */
+    private final long ttlMs;
+    /** Максимальное число записей. */
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttlMs время жизни записи в миллисекундах; 0 отключает кэш
+     * @param maxSize максимальное число записей
+     */
+    public AuthCache(long ttlMs, int maxSize) {
+        this.ttlMs = ttlMs;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return хеш пароля из кэша или null, если записи нет или она устарела
+     */
+    public String get(String login) {
+        if (ttlMs <= 0) {
+            return null;
+        }
+        Entry entry = entries.get(login);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(login, entry);
+            return null;
+        }
+        return entry.hash;
+    }
+
+    /**
+     * Запоминает хеш пароля пользователя. При переполнении сначала удаляются устаревшие записи,
+     * а если их нет — произвольные.
+     */
+    public void put(String login, String hash) {
+        if (ttlMs <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(login)) {
+            evict();
+        }
+        entries.put(login, new Entry(hash, System.currentTimeMillis() + ttlMs));
+    }
+
+    /**
+     * Удаляет запись пользователя.
+     */
+    public void invalidate(String login) {
+        entries.remove(login);
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt < now);
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static class Entry {
+        final String hash;
+        final long expiresAt;
+
+        Entry(String hash, long expiresAt) {
+            this.hash = hash;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package server.dataBase;
+
+import server.metrics.Histogram;
+import server.metrics.Metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Ограниченный пул JDBC-соединений.
+ * Соединение, выданное пулом, при вызове {@link Connection#close()} возвращается в пул,
+ * поэтому вызывающий код продолжает использовать try-with-resources как с обычным соединением.
+ * Простаивающие соединения проверяются при выдаче и закрываются по истечении таймаута простоя.
+ */
+public class ConnectionPool {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final String url;
+    private final String user;
+    private final String password;
+    /** Максимальное число одновременно открытых соединений. */
+    private final int maxSize;
+    /** Максимальное время ожидания свободного соединения в миллисекундах. */
+    private final long maxWaitMs;
+    /** Время простоя, после которого соединение закрывается, в миллисекундах. */
+    private final long idleTimeoutMs;
+    /** Соединения, простоявшие меньше этого времени, выдаются без проверки. */
+    private final long validationIntervalMs;
+
+    /** Простаивающие соединения, последнее возвращённое — первое выдаваемое. */
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    /** Время ожидания соединения. */
+    private final Histogram waitHistogram = Metrics.histogram("db_pool_wait_us");
+    /** Время работы с выданным соединением до его возврата — стадия базы данных в метриках сервера. */
+    private final Histogram holdHistogram = Metrics.histogram("stage_latency_us{stage=\"db\"}");
+    private volatile boolean closed = false;
+
+    /**
+     * Создаёт пул.
+     *
+     * @param url адрес базы данных
+     * @param user имя пользователя базы
+     * @param password пароль пользователя базы
+     * @param maxSize максимальное число соединений
+     * @param maxWaitMs максимальное время ожидания соединения в миллисекундах
+     * @param idleTimeoutMs время простоя до закрытия соединения в миллисекундах
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, long maxWaitMs, long idleTimeoutMs) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.maxWaitMs = maxWaitMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = Math.min(500, idleTimeoutMs);
+        this.permits = new Semaphore(maxSize, true);
+        try {
+            Class.forName("org.postgresql.Driver");
+        } catch (ClassNotFoundException e) {
+            logger.warning("Драйвер PostgreSQL не найден: " + e.getMessage());
+        }
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeoutMs / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Выдаёт соединение из пула, при необходимости открывая новое.
+     *
+     * @return соединение, которое возвращается в пул при закрытии
+     * @throws SQLException если соединение не удалось получить или истекло время ожидания
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("Нет свободного соединения за " + maxWaitMs + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения прервано", e);
+        } finally {
+            long waited = System.nanoTime() - start;
+            waitNanos.add(waited);
+            waitHistogram.record(waited);
+        }
+
+        try {
+            Connection raw = takeValidIdle();
+            if (raw == null) {
+                raw = DriverManager.getConnection(url, user, password);
+                created.increment();
+            }
+            active.incrementAndGet();
+            borrowed.increment();
+            return wrap(raw);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Достаёт из пула простаивающее соединение, отбрасывая неработающие.
+     */
+    private Connection takeValidIdle() {
+        while (true) {
+            IdleConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+            long idleFor = System.currentTimeMillis() - candidate.since;
+            if (idleFor < validationIntervalMs || isValid(candidate.connection)) {
+                return candidate.connection;
+            }
+            evicted.increment();
+            closeQuietly(candidate.connection);
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул. Соединения с незавершённой транзакцией откатываются.
+     */
+    private void release(Connection raw) {
+        active.decrementAndGet();
+        try {
+            if (closed || raw.isClosed()) {
+                closeQuietly(raw);
+                return;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            synchronized (idle) {
+                idle.offerFirst(new IdleConnection(raw, System.currentTimeMillis()));
+            }
+        } catch (SQLException e) {
+            evicted.increment();
+            closeQuietly(raw);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Закрывает соединения, простаивающие дольше таймаута.
+     */
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<Connection> expired = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<IdleConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                IdleConnection candidate = it.next();
+                if (now - candidate.since < idleTimeoutMs) {
+                    break;
+                }
+                it.remove();
+                expired.add(candidate.connection);
+            }
+        }
+        for (Connection connection : expired) {
+            evicted.increment();
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Закрывает пул и все простаивающие соединения. Выданные соединения закрываются при возврате.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        List<IdleConnection> rest;
+        synchronized (idle) {
+            rest = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (IdleConnection connection : rest) {
+            closeQuietly(connection.connection);
+        }
+    }
+
+    private Connection wrap(Connection raw) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledHandler(raw));
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.fine("Ошибка при закрытии соединения: " + e.getMessage());
+        }
+    }
+
+    /** @return число выданных сейчас соединений */
+    public int getActive() {
+        return active.get();
+    }
+
+    /** @return число простаивающих соединений */
+    public int getIdle() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /** @return среднее время ожидания соединения в миллисекундах */
+    public double getAverageWaitMs() {
+        long count = borrowed.sum() + timeouts.sum();
+        return count == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    /** @return суммарное время ожидания соединений в миллисекундах */
+    public long getTotalWaitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+
+    /**
+     * @return строка со статистикой пула для вывода в консоль администратора
+     */
+    public String stats() {
+        return String.format("Пул соединений: активных %d, простаивающих %d, максимум %d; выдано %d, открыто %d, закрыто %d, таймаутов %d; ожидание среднее %.3f мс, всего %d мс",
+                getActive(), getIdle(), maxSize, borrowed.sum(), created.sum(), evicted.sum(), timeouts.sum(),
+                getAverageWaitMs(), getTotalWaitMs());
+    }
+
+    /**
+     * Простаивающее соединение и момент его возврата в пул.
+     */
+    private static class IdleConnection {
+        final Connection connection;
+        final long since;
+
+        IdleConnection(Connection connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+
+    /**
+     * Обработчик вызовов выданного соединения: close() возвращает соединение в пул,
+     * остальные вызовы передаются настоящему соединению.
+     */
+    private class PooledHandler implements InvocationHandler {
+        private final Connection raw;
+        private final long borrowedAt = System.nanoTime();
+        private boolean returned = false;
+
+        PooledHandler(Connection raw) {
+            this.raw = raw;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            holdHistogram.record(System.nanoTime() - borrowedAt);
+                            release(raw);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return returned || raw.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + raw;
+                default:
+                    synchronized (this) {
+                        if (returned) {
+                            throw new SQLException("Соединение уже возвращено в пул");
+                        }
+                    }
+                    try {
+                        return method.invoke(raw, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -2,264 +2,397 @@ package server.dataBase;
 
 import server.collection.CollectionManager;
 import server.logger.DbColorFormatter;
+import server.logger.LogSetup;
 import shared.dto.CommandType;
 import shared.dto.Response;
 import shared.dto.ResponseStatus;
 import shared.dto.User;
-import shared.model.Coordinates;
-import shared.model.Location;
 import shared.model.Person;
-import shared.model.enums.Color;
 
 import java.io.IOException;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.logging.*;
 
 public class DataBaseManager {
     private static final Logger logger = Logger.getLogger(DataBaseManager.class.getName());
     private final QueryManager queryManager = new QueryManager();
     private final PasswordManager passwordManager = new PasswordManager();
-    private final ReentrantLock lock = new ReentrantLock();
+    /** Сколько строк драйвер получает из базы за один раз при потоковом чтении. */
+    private static final int FETCH_SIZE = Integer.getInteger("db.fetchSize", 1000);
+    private static final String DB_URL = "jdbc:postgresql://localhost:25432/studs";
 
-    public static Connection connect() {
+    /** Хеши паролей недавно вошедших пользователей; время жизни и размер задаются свойствами auth.cacheTtlMs и auth.cacheSize. */
+    private static final AuthCache authCache = new AuthCache(
+            Long.getLong("auth.cacheTtlMs", 60000L),
+            Integer.getInteger("auth.cacheSize", 10000));
+
+    /** Пул соединений, создаётся при первом обращении, когда учётные данные уже прочитаны {@link FileReader}. */
+    private static volatile ConnectionPool pool;
+
+    static {
         installLogger();
+    }
+
+    /**
+     * Выдаёт соединение из пула. Закрытие соединения возвращает его в пул.
+     *
+     * @return соединение или null, если подключиться не удалось
+     */
+    public static Connection connect() {
         try {
-            Class.forName("org.postgresql.Driver");
-            return DriverManager.getConnection("jdbc:postgresql://localhost:25432/studs", FileReader.getUser(), FileReader.getPassword());
-        } catch (SQLException | ClassNotFoundException e) {
+            return getPool().getConnection();
+        } catch (SQLException e) {
             logger.warning("Ошибка при подключении к базе данных: " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * Возвращает пул соединений, создавая его при первом вызове.
+     * Размер и таймауты задаются свойствами db.pool.size, db.pool.maxWaitMs и db.pool.idleTimeoutMs.
+     */
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DataBaseManager.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(DB_URL, FileReader.getUser(), FileReader.getPassword(),
+                            Integer.getInteger("db.pool.size", 8),
+                            Long.getLong("db.pool.maxWaitMs", 5000L),
+                            Long.getLong("db.pool.idleTimeoutMs", 60000L));
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return пул соединений, если он уже создан, иначе null; в отличие от {@link #getPool()} пул не создаёт
+     */
+    public static ConnectionPool currentPool() {
+        return pool;
+    }
+
+    /**
+     * Закрывает пул соединений при остановке сервера.
+     */
+    public static void shutdown() {
+        synchronized (DataBaseManager.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
     public LinkedList<Person> loadCache(String user_login, LinkedList<Person> collection) {
-        lock.lock();
-        try {
-            try (Connection connection = connect()) {
-                if (connection == null) {
-                    logger.warning("Не удалось подключиться к базе данных для загрузки кэша");
-                    return collection;
+        streamPeople(user_login, collection::add);
+        return collection;
+    }
+
+    /**
+     * Читает таблицу People потоково: внутри транзакции с заданным размером выборки драйвер
+     * получает строки порциями по FETCH_SIZE, и каждая строка сразу передаётся получателю
+     * без промежуточного списка.
+     *
+     * @param user_login владелец или null для всей таблицы
+     * @param sink получатель прочитанных объектов
+     * @return число прочитанных строк или -1, если чтение прервалось ошибкой
+     */
+    public int streamPeople(String user_login, Consumer<Person> sink) {
+        try (Connection connection = connect()) {
+            if (connection == null) {
+                logger.warning("Не удалось подключиться к базе данных для загрузки кэша");
+                return -1;
+            }
+            connection.setAutoCommit(false);
+            String query = user_login == null ? queryManager.selectAllObjects : queryManager.selectAllObjects + " WHERE user_login = ?";
+            try (PreparedStatement selectAll = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                selectAll.setFetchSize(FETCH_SIZE);
+                if (user_login != null) {
+                    selectAll.setString(1, user_login);
                 }
-                String query = user_login == null ? queryManager.selectAllObjects : queryManager.selectAllObjects + " WHERE user_login = ?";
-                try (PreparedStatement selectAll = connection.prepareStatement(query)) {
-                    if (user_login != null) {
-                        selectAll.setString(1, user_login);
-                    }
-                    try (ResultSet resultSet = selectAll.executeQuery()) {
-                        while (resultSet.next()) {
-                            Person person = new Person();
-                            person.setId(resultSet.getLong("id"));
-                            person.setName(resultSet.getString("name"));
-                            person.setHeight(resultSet.getInt("height"));
-                            person.setWeight(resultSet.getLong("weight"));
-                            person.setEyeColor(resultSet.getString("eyeColor") != null ? Color.valueOf(resultSet.getString("eyeColor")) : null);
-                            person.setPassportID(resultSet.getString("passportId"));
-                            person.setUser_login(resultSet.getString("user_login"));
-                            Coordinates coordinates = new Coordinates();
-                            coordinates.setX(resultSet.getLong("coordX"));
-                            coordinates.setY(resultSet.getDouble("coordY"));
-                            person.setCoordinates(coordinates);
-                            Location location = new Location();
-                            location.setX(resultSet.getDouble("locX"));
-                            location.setY(resultSet.getFloat("locY"));
-                            location.setZ(resultSet.getInt("locZ"));
-                            person.setLocation(location);
-                            collection.add(person);
-                        }
-                        logger.info("Загружено " + collection.size() + " объектов из базы данных" + (user_login != null ? " для пользователя " + user_login : ""));
-                        return collection;
+                int count = 0;
+                try (ResultSet resultSet = selectAll.executeQuery()) {
+                    PersonRowDecoder decoder = new PersonRowDecoder(resultSet);
+                    while (resultSet.next()) {
+                        sink.accept(decoder.decode(resultSet));
+                        count++;
                     }
                 }
-            } catch (SQLException e) {
-                logger.warning("Ошибка при загрузке кэша: " + e.getMessage());
-                return collection;
+                connection.commit();
+                logger.info("Загружено " + count + " объектов из базы данных" + (user_login != null ? " для пользователя " + user_login : ""));
+                return count;
             }
-        } finally {
-            lock.unlock();
+        } catch (SQLException e) {
+            logger.warning("Ошибка при загрузке кэша: " + e.getMessage());
+            return -1;
         }
     }
 
     public Long addPerson(Person person, String login) {
-        lock.lock();
-        try {
-            try (Connection connection = connect()) {
-                if (connection == null) {
-                    return null;
-                }
-                try (PreparedStatement add = connection.prepareStatement(queryManager.addPerson)) {
-                    add.setString(1, person.getName());
-                    add.setInt(2, person.getHeight());
-                    add.setLong(3, person.getWeight());
-                    add.setString(4, person.getEyeColor() != null ? person.getEyeColor().name() : null);
-                    add.setLong(5, person.getCoordinates().getX());
-                    add.setDouble(6, person.getCoordinates().getY());
-                    add.setDouble(7, person.getLocation().getX());
-                    add.setFloat(8, person.getLocation().getY());
-                    add.setInt(9, person.getLocation().getZ());
-                    add.setString(10, person.getPassportID());
-                    add.setString(11, login);
-                    try (ResultSet resultSet = add.executeQuery()) {
-                        if (resultSet.next()) {
-                            return resultSet.getLong("id");
-                        }
+        try (Connection connection = connect()) {
+            if (connection == null) {
+                return null;
+            }
+            try (PreparedStatement add = connection.prepareStatement(queryManager.addPerson)) {
+                bindPerson(add, person);
+                add.setString(11, login);
+                try (ResultSet resultSet = add.executeQuery()) {
+                    if (resultSet.next()) {
+                        return resultSet.getLong("id");
                     }
                 }
-            } catch (SQLException e) {
-                logger.warning("Ошибка при добавлении объекта: " + e.getMessage());
-                return null;
             }
+        } catch (SQLException e) {
+            logger.warning("Ошибка при добавлении объекта: " + e.getMessage());
             return null;
-        } finally {
-            lock.unlock();
         }
+        return null;
     }
 
-    public boolean updatePerson(long id, Person newPerson, String login) {
-        lock.lock();
-        try {
-            try (Connection connection = connect()) {
-                if (connection == null) {
-                    return false;
-                }
-                try (PreparedStatement checkOwner = connection.prepareStatement(queryManager.selectObject)) {
-                    checkOwner.setString(1, login);
-                    checkOwner.setLong(2, id);
-                    try (ResultSet resultSet = checkOwner.executeQuery()) {
-                        if (!resultSet.next()) {
-                            return false;
-                        }
-                    }
+    /**
+     * Обновляет объект одним запросом: условие на владельца входит в UPDATE, а RETURNING id
+     * показывает, нашлась ли строка.
+     *
+     * @return OK, NOT_FOUND если объекта нет или он чужой, ERROR при ошибке базы
+     */
+    public WriteResult updatePerson(long id, Person newPerson, String login) {
+        try (Connection connection = connect()) {
+            if (connection == null) {
+                return WriteResult.ERROR;
+            }
+            try (PreparedStatement update = connection.prepareStatement(queryManager.updateObjectReturningId)) {
+                bindPerson(update, newPerson);
+                update.setString(11, login);
+                update.setLong(12, id);
+                try (ResultSet resultSet = update.executeQuery()) {
+                    return resultSet.next() ? WriteResult.OK : WriteResult.NOT_FOUND;
                 }
-                try (PreparedStatement update = connection.prepareStatement(queryManager.updateObject)) {
-                    update.setString(1, newPerson.getName());
-                    update.setInt(2, newPerson.getHeight());
-                    update.setLong(3, newPerson.getWeight());
-                    update.setString(4, newPerson.getEyeColor() != null ? newPerson.getEyeColor().name() : null);
-                    update.setLong(5, newPerson.getCoordinates().getX());
-                    update.setDouble(6, newPerson.getCoordinates().getY());
-                    update.setDouble(7, newPerson.getLocation().getX());
-                    update.setFloat(8, newPerson.getLocation().getY());
-                    update.setInt(9, newPerson.getLocation().getZ());
-                    update.setString(10, newPerson.getPassportID());
-                    update.setString(11, login);
-                    update.setLong(12, id);
-                    int updatedRows = update.executeUpdate();
-                    return updatedRows > 0;
+            }
+        } catch (SQLException e) {
+            logger.warning("Ошибка при обновлении объекта: " + e.getMessage());
+            return WriteResult.ERROR;
+        }
+    }
+
+    /**
+     * Удаляет объект одним запросом с условием на владельца и RETURNING id.
+     *
+     * @return OK, NOT_FOUND если объекта нет или он чужой, ERROR при ошибке базы
+     */
+    public WriteResult removePerson(long id, String login) {
+        try (Connection connection = connect()) {
+            if (connection == null) {
+                return WriteResult.ERROR;
+            }
+            try (PreparedStatement remove = connection.prepareStatement(queryManager.deleteObjectReturningId)) {
+                remove.setString(1, login);
+                remove.setLong(2, id);
+                try (ResultSet resultSet = remove.executeQuery()) {
+                    return resultSet.next() ? WriteResult.OK : WriteResult.NOT_FOUND;
                 }
-            } catch (SQLException e) {
-                logger.warning("Ошибка при обновлении объекта: " + e.getMessage());
+            }
+        } catch (SQLException e) {
+            logger.warning("Ошибка при удалении объекта: " + e.getMessage());
+            return WriteResult.ERROR;
+        }
+    }
+
+    public boolean clear(String login) {
+        try (Connection connection = connect()) {
+            if (connection == null) {
                 return false;
             }
-        } finally {
-            lock.unlock();
+            try (PreparedStatement clear = connection.prepareStatement(queryManager.clearCollection)) {
+                clear.setString(1, login);
+                int deletedRows = clear.executeUpdate();
+                return true;
+            }
+        } catch (SQLException e) {
+            logger.warning("Ошибка при очистке коллекции: " + e.getMessage());
+            return false;
         }
     }
 
-    public boolean removePerson(long id, String login) {
-        lock.lock();
-        try {
-            try (Connection connection = connect()) {
-                if (connection == null) {
-                    return false;
+    /**
+     * Добавляет объекты одной транзакцией через JDBC-батч.
+     *
+     * @param persons добавляемые объекты
+     * @param login владелец объектов
+     * @return id добавленных объектов в том же порядке или null, если транзакция откатилась
+     */
+    public List<Long> addPersons(List<Person> persons, String login) {
+        try (Connection connection = connect()) {
+            if (connection == null) {
+                return null;
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement add = connection.prepareStatement(queryManager.addPersonBatch, new String[]{"id"})) {
+                for (Person person : persons) {
+                    bindPerson(add, person);
+                    add.setString(11, login);
+                    add.addBatch();
                 }
-                try (PreparedStatement remove = connection.prepareStatement(queryManager.deleteObject)) {
-                    remove.setString(1, login);
-                    remove.setLong(2, id);
-                    int deletedRows = remove.executeUpdate();
-                    return deletedRows > 0;
+                add.executeBatch();
+                List<Long> ids = new ArrayList<>(persons.size());
+                try (ResultSet keys = add.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getLong(1));
+                    }
+                }
+                if (ids.size() != persons.size()) {
+                    connection.rollback();
+                    logger.warning("Батч добавления вернул " + ids.size() + " id из " + persons.size());
+                    return null;
                 }
+                connection.commit();
+                return ids;
             } catch (SQLException e) {
-                logger.warning("Ошибка при удалении объекта: " + e.getMessage());
-                return false;
+                connection.rollback();
+                throw e;
             }
-        } finally {
-            lock.unlock();
+        } catch (SQLException e) {
+            logger.warning("Ошибка при пакетном добавлении объектов: " + e.getMessage());
+            return null;
         }
     }
 
-    public boolean clear(String login) {
-        lock.lock();
-        try {
-            try (Connection connection = connect()) {
-                if (connection == null) {
-                    return false;
-                }
-                try (PreparedStatement clear = connection.prepareStatement(queryManager.clearCollection)) {
-                    clear.setString(1, login);
-                    int deletedRows = clear.executeUpdate();
-                    return true;
+    /**
+     * Обновляет объекты одной транзакцией через JDBC-батч.
+     *
+     * @param persons новые значения по id
+     * @param login владелец объектов
+     * @return число обновлённых строк для каждого объекта в порядке обхода persons или null при ошибке
+     */
+    public int[] updatePersons(Map<Long, Person> persons, String login) {
+        try (Connection connection = connect()) {
+            if (connection == null) {
+                return null;
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement update = connection.prepareStatement(queryManager.updateObject)) {
+                for (Map.Entry<Long, Person> entry : persons.entrySet()) {
+                    bindPerson(update, entry.getValue());
+                    update.setString(11, login);
+                    update.setLong(12, entry.getKey());
+                    update.addBatch();
                 }
+                int[] updated = update.executeBatch();
+                connection.commit();
+                return updated;
             } catch (SQLException e) {
-                logger.warning("Ошибка при очистке коллекции: " + e.getMessage());
-                return false;
+                connection.rollback();
+                throw e;
             }
-        } finally {
-            lock.unlock();
+        } catch (SQLException e) {
+            logger.warning("Ошибка при пакетном обновлении объектов: " + e.getMessage());
+            return null;
         }
     }
 
-    private static void installLogger() {
-        try {
-
-            for (Handler handler : logger.getHandlers()) {
-                if (handler instanceof FileHandler) {
-                    return;
+    /**
+     * Удаляет объекты одной транзакцией через JDBC-батч.
+     *
+     * @param ids id удаляемых объектов
+     * @param login владелец объектов
+     * @return число удалённых строк для каждого id или null при ошибке
+     */
+    public int[] removePersons(List<Long> ids, String login) {
+        try (Connection connection = connect()) {
+            if (connection == null) {
+                return null;
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement remove = connection.prepareStatement(queryManager.deleteObject)) {
+                for (Long id : ids) {
+                    remove.setString(1, login);
+                    remove.setLong(2, id);
+                    remove.addBatch();
                 }
+                int[] removed = remove.executeBatch();
+                connection.commit();
+                return removed;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
             }
-            FileHandler fileHandler = new FileHandler("data.log", true);
-            fileHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(fileHandler);
+        } catch (SQLException e) {
+            logger.warning("Ошибка при пакетном удалении объектов: " + e.getMessage());
+            return null;
+        }
+    }
 
-            // Настройка ConsoleHandler для цветного вывода
-            ConsoleHandler consoleHandler = new ConsoleHandler();
-            consoleHandler.setFormatter(new DbColorFormatter());
-            logger.addHandler(consoleHandler);
+    /**
+     * Заполняет параметры 1–10 запросов addPerson/updateObject полями объекта.
+     */
+    private static void bindPerson(PreparedStatement statement, Person person) throws SQLException {
+        statement.setString(1, person.getName());
+        statement.setInt(2, person.getHeight());
+        statement.setLong(3, person.getWeight());
+        statement.setString(4, person.getEyeColor() != null ? person.getEyeColor().name() : null);
+        statement.setLong(5, person.getCoordinates().getX());
+        statement.setDouble(6, person.getCoordinates().getY());
+        statement.setDouble(7, person.getLocation().getX());
+        statement.setFloat(8, person.getLocation().getY());
+        statement.setInt(9, person.getLocation().getZ());
+        statement.setString(10, person.getPassportID());
+    }
 
-            // Установка уровня логирования
-            logger.setLevel(Level.ALL);
-            logger.setUseParentHandlers(false); // Отключаем дефолтный консольный обработчик
+    private static void installLogger() {
+        try {
+            LogSetup.install(logger, "data.log", new DbColorFormatter());
         } catch (IOException e) {
             logger.severe("Ошибка настройки логирования базы данных: " + e.getMessage());
         }
     }
 
     public Response registration(User user) {
-        lock.lock();
-        try {
-            try (Connection connection = connect()) {
-                if (connection == null) {
-                    return new Response(ResponseStatus.ERROR, "DBerror", CommandType.REGISTRATION);
-                }
-                try (PreparedStatement findUser = connection.prepareStatement(queryManager.findUser)) {
-                    findUser.setString(1, user.getLogin());
-                    try (ResultSet resultSet = findUser.executeQuery()) {
-                        if (!resultSet.next()) {
-                            try (PreparedStatement addUser = connection.prepareStatement(queryManager.addUser)) {
-                                addUser.setString(1, user.getLogin());
-                                addUser.setString(2, passwordManager.hashPassword(user.getPassword()));
-                                addUser.execute();
-                                return new Response(ResponseStatus.OK, "SuccessRegister", CommandType.REGISTRATION, user);
-                            }
-                        } else {
-                            return new Response(ResponseStatus.ERROR, "UserExists", CommandType.REGISTRATION);
+        try (Connection connection = connect()) {
+            if (connection == null) {
+                return new Response(ResponseStatus.ERROR, "DBerror", CommandType.REGISTRATION);
+            }
+            try (PreparedStatement findUser = connection.prepareStatement(queryManager.findUser)) {
+                findUser.setString(1, user.getLogin());
+                try (ResultSet resultSet = findUser.executeQuery()) {
+                    if (!resultSet.next()) {
+                        try (PreparedStatement addUser = connection.prepareStatement(queryManager.addUser)) {
+                            addUser.setString(1, user.getLogin());
+                            String hash = passwordManager.hashPassword(user.getPassword());
+                            addUser.setString(2, hash);
+                            addUser.execute();
+                            authCache.put(user.getLogin(), hash);
+                            return new Response(ResponseStatus.OK, "SuccessRegister", CommandType.REGISTRATION, user);
                         }
+                    } else {
+                        return new Response(ResponseStatus.ERROR, "UserExists", CommandType.REGISTRATION);
                     }
                 }
-            } catch (SQLException e) {
-                logger.warning("Ошибка при регистрации: " + e.getMessage());
-                return new Response(ResponseStatus.ERROR, "DBerror", CommandType.REGISTRATION);
             }
-        } finally {
-            lock.unlock();
+        } catch (SQLException e) {
+            logger.warning("Ошибка при регистрации: " + e.getMessage());
+            return new Response(ResponseStatus.ERROR, "DBerror", CommandType.REGISTRATION);
         }
     }
 
+    /**
+     * Проверяет логин и пароль. Хеш пароля берётся из кэша, к базе запрос идёт только при промахе.
+     * Коллекция в ответ не кладётся: её добавляет команда, если клиент её запросил.
+     *
+     * @return ответ REFRESH с пользователем при успехе или ERROR с причиной
+     */
     public Response authenticate(String login, String password) {
-        lock.lock();
-        try {
+        String inputHash = passwordManager.hashPassword(password);
+        String storedHash = authCache.get(login);
+        if (storedHash == null) {
             try (Connection connection = connect()) {
                 if (connection == null) {
                     return new Response(ResponseStatus.ERROR, "DBerror", CommandType.AUTHENTICATE);
@@ -267,28 +400,24 @@ public class DataBaseManager {
                 try (PreparedStatement findUser = connection.prepareStatement(queryManager.findUser)) {
                     findUser.setString(1, login);
                     try (ResultSet resultSet = findUser.executeQuery()) {
-                        if (resultSet.next()) {
-                            String storedHash = resultSet.getString("hash");
-                            String inputHash = passwordManager.hashPassword(password);
-                            if (storedHash != null && storedHash.equals(inputHash)) {
-                                LinkedList<Person> people = new LinkedList<>();
-                                loadCache(null, people);
-                                return new Response(ResponseStatus.REFRESH, "SuccessAuth", CommandType.AUTHENTICATE, new User(login, password), people);
-                            } else {
-                                return new Response(ResponseStatus.ERROR, "WrongPassword", CommandType.AUTHENTICATE);
-                            }
-                        } else {
+                        if (!resultSet.next()) {
                             return new Response(ResponseStatus.ERROR, "UserNotFound", CommandType.AUTHENTICATE);
                         }
+                        storedHash = resultSet.getString("hash");
                     }
                 }
             } catch (SQLException e) {
                 logger.warning("Ошибка при авторизации: " + e.getMessage());
                 return new Response(ResponseStatus.ERROR, "DBerror", CommandType.AUTHENTICATE);
             }
-        } finally {
-            lock.unlock();
+            if (storedHash != null) {
+                authCache.put(login, storedHash);
+            }
+        }
+        if (storedHash != null && storedHash.equals(inputHash)) {
+            return new Response(ResponseStatus.REFRESH, "SuccessAuth", CommandType.AUTHENTICATE, new User(login, password), null);
         }
+        return new Response(ResponseStatus.ERROR, "WrongPassword", CommandType.AUTHENTICATE);
     }
 
 
@@ -1,19 +1,53 @@
 package server.dataBase;
 
-import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+/**
+ * Хеширование паролей алгоритмом SHA-256.
+ * Экземпляр MessageDigest и буфер для шестнадцатеричной строки свои у каждого потока,
+ * поэтому хеширование не создаёт дайджест на каждый вызов и не требует синхронизации.
+ * Формат результата совпадает с прежним {@code new BigInteger(1, hash).toString(16)}:
+ * строчные цифры без ведущих нулей, поэтому хеши, уже записанные в базу, остаются верными.
+ */
 public class PasswordManager {
-    public String hashPassword(String password){
-        try{
-            MessageDigest mg = MessageDigest.getInstance("SHA-256");
-            byte[] pswd = mg.digest(password.getBytes(StandardCharsets.UTF_8));
-            BigInteger bi = new BigInteger(1, pswd);
-            return bi.toString(16);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException(e);
         }
+    });
+
+    private static final ThreadLocal<char[]> HEX_BUFFER = ThreadLocal.withInitial(() -> new char[64]);
+
+    public String hashPassword(String password){
+        MessageDigest mg = DIGEST.get();
+        byte[] pswd = mg.digest(password.getBytes(StandardCharsets.UTF_8));
+        return toHex(pswd);
+    }
+
+    /**
+     * Переводит хеш в шестнадцатеричную строку без ведущих нулей.
+     */
+    private static String toHex(byte[] bytes) {
+        char[] out = HEX_BUFFER.get();
+        if (out.length < bytes.length * 2) {
+            out = new char[bytes.length * 2];
+            HEX_BUFFER.set(out);
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX[(bytes[i] >> 4) & 0x0F];
+            out[2 * i + 1] = HEX[bytes[i] & 0x0F];
+        }
+        int length = bytes.length * 2;
+        int start = 0;
+        while (start < length - 1 && out[start] == '0') {
+            start++;
+        }
+        return new String(out, start, length - start);
     }
 }
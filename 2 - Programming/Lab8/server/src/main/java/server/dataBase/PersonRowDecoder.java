@@ -0,0 +1,77 @@
+package server.dataBase;
+
+import shared.model.Coordinates;
+import shared.model.Location;
+import shared.model.Person;
+import shared.model.enums.Color;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Преобразует строки таблицы People в объекты {@link Person}.
+ * Номера столбцов определяются один раз по метаданным результата,
+ * дальше каждая строка читается по индексам без поиска столбцов по имени.
+ */
+public class PersonRowDecoder {
+    private final int id;
+    private final int name;
+    private final int height;
+    private final int weight;
+    private final int eyeColor;
+    private final int passportId;
+    private final int userLogin;
+    private final int coordX;
+    private final int coordY;
+    private final int locX;
+    private final int locY;
+    private final int locZ;
+
+    /**
+     * @param resultSet результат запроса к таблице People
+     * @throws SQLException если в результате нет нужного столбца
+     */
+    public PersonRowDecoder(ResultSet resultSet) throws SQLException {
+        id = resultSet.findColumn("id");
+        name = resultSet.findColumn("name");
+        height = resultSet.findColumn("height");
+        weight = resultSet.findColumn("weight");
+        eyeColor = resultSet.findColumn("eyeColor");
+        passportId = resultSet.findColumn("passportId");
+        userLogin = resultSet.findColumn("user_login");
+        coordX = resultSet.findColumn("coordX");
+        coordY = resultSet.findColumn("coordY");
+        locX = resultSet.findColumn("locX");
+        locY = resultSet.findColumn("locY");
+        locZ = resultSet.findColumn("locZ");
+    }
+
+    /**
+     * Читает текущую строку результата.
+     *
+     * @param resultSet результат, для которого создан декодер
+     * @return объект, соответствующий строке
+     * @throws SQLException при ошибке чтения столбца
+     */
+    public Person decode(ResultSet resultSet) throws SQLException {
+        Person person = new Person();
+        person.setId(resultSet.getLong(id));
+        person.setName(resultSet.getString(name));
+        person.setHeight(resultSet.getInt(height));
+        person.setWeight(resultSet.getLong(weight));
+        String color = resultSet.getString(eyeColor);
+        person.setEyeColor(color != null ? Color.valueOf(color) : null);
+        person.setPassportID(resultSet.getString(passportId));
+        person.setUser_login(resultSet.getString(userLogin));
+        Coordinates coordinates = new Coordinates();
+        coordinates.setX(resultSet.getLong(coordX));
+        coordinates.setY(resultSet.getDouble(coordY));
+        person.setCoordinates(coordinates);
+        Location location = new Location();
+        location.setX(resultSet.getDouble(locX));
+        location.setY(resultSet.getFloat(locY));
+        location.setZ(resultSet.getInt(locZ));
+        person.setLocation(location);
+        return person;
+    }
+}
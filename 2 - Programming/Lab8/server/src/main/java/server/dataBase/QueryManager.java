@@ -8,14 +8,17 @@ public class QueryManager {
             VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             RETURNING id;
             """;
+    /** Тот же INSERT без RETURNING: в батче id возвращаются через getGeneratedKeys. */
+    String addPersonBatch = addPerson.replace("RETURNING id;", "").trim();
     String clearCollection = "DELETE FROM People WHERE user_login = ?;";
     String deleteObject = "DELETE FROM People WHERE user_login = ? AND id = ?;";
+    String deleteObjectReturningId = "DELETE FROM People WHERE user_login = ? AND id = ? RETURNING id;";
     String removeHead = "DELETE FROM People WHERE user_login = ? AND id = (SELECT MIN(id) FROM People WHERE user_login = ?) RETURNING id;";
     String updateObject = """
             UPDATE People
             SET name = ?, height = ?, weight = ?, eyeColor = ?, coordX = ?, coordY = ?, locX = ?, locY = ?, locZ = ?, passportId = ?
             WHERE user_login = ? AND id = ?
             """;
+    String updateObjectReturningId = updateObject.trim() + " RETURNING id;";
     String selectAllObjects = "SELECT * FROM People";
-    String selectObject = "SELECT id, user_login FROM People WHERE user_login = ? AND id = ?;";
 }
\ No newline at end of file
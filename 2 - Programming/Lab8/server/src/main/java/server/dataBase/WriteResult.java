@@ -0,0 +1,13 @@
+package server.dataBase;
+
+/**
+ * Результат изменения одного объекта в базе данных.
+ */
+public enum WriteResult {
+    /** Строка изменена. */
+    OK,
+    /** Строки с таким id нет или она принадлежит другому пользователю. */
+    NOT_FOUND,
+    /** Ошибка подключения или выполнения запроса. */
+    ERROR
+}
@@ -0,0 +1,142 @@
+package server.logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Асинхронный обработчик журнала: поток, записавший сообщение, только кладёт запись в ограниченный
+ * кольцевой буфер, а форматирование и запись в целевые обработчики выполняет отдельный поток log-writer.
+ * Поток забирает записи пачками и сбрасывает целевые обработчики один раз на пачку.
+ * Буфер общий для всех логгеров сервера (размер — свойство log.queueSize, по умолчанию 8192 записи).
+ * Если буфер заполнен, запись отбрасывается, а не ждёт: обработка запросов не блокируется на вводе-выводе
+ * журнала; число отброшенных записей потом попадает в журнал предупреждением.
+ * <p>
+ * Место вызова (класс и метод) по умолчанию не вычисляется — это обход стека на каждую запись;
+ * вместо него в журнал пишется имя логгера. Свойство log.inferCaller=true возвращает прежнее поведение.
+ */
+public class AsyncHandler extends Handler {
+    private static final int BATCH = 256;
+    private static final boolean INFER_CALLER = Boolean.getBoolean("log.inferCaller");
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(Integer.getInteger("log.queueSize", 8192));
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final Object writeLock = new Object();
+
+    static {
+        Thread writer = new Thread(AsyncHandler::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncHandler::drain, "log-drain"));
+    }
+
+    private final Handler[] targets;
+
+    /**
+     * Запись и обработчик, через который она пришла.
+     */
+    private static class Entry {
+        final AsyncHandler owner;
+        final LogRecord record;
+
+        Entry(AsyncHandler owner, LogRecord record) {
+            this.owner = owner;
+            this.record = record;
+        }
+    }
+
+    /**
+     * @param targets обработчики, в которые поток log-writer передаёт записи
+     */
+    public AsyncHandler(Handler... targets) {
+        this.targets = targets;
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        if (INFER_CALLER) {
+            record.getSourceClassName();
+        } else {
+            record.setSourceClassName(record.getLoggerName());
+        }
+        if (!queue.offer(new Entry(this, record))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Записи сбрасываются потоком log-writer после каждой пачки, поэтому здесь ждать нечего.
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        drain();
+        for (Handler target : targets) {
+            target.close();
+        }
+    }
+
+    private static void writeLoop() {
+        List<Entry> batch = new ArrayList<>(BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH - 1);
+            synchronized (writeLock) {
+                write(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Записывает всё, что осталось в буфере. Вызывается при остановке JVM.
+     */
+    private static void drain() {
+        List<Entry> rest = new ArrayList<>();
+        synchronized (writeLock) {
+            queue.drainTo(rest);
+            write(rest);
+        }
+    }
+
+    private static void write(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<Handler> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Entry entry : batch) {
+            for (Handler target : entry.owner.targets) {
+                target.publish(entry.record);
+                touched.add(target);
+            }
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            LogRecord warning = new LogRecord(Level.WARNING, "Журнал не успевал за сервером, пропущено записей: " + lost);
+            warning.setSourceClassName(AsyncHandler.class.getName());
+            for (Handler target : batch.get(batch.size() - 1).owner.targets) {
+                target.publish(warning);
+            }
+        }
+        for (Handler target : touched) {
+            target.flush();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package server.logger;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+/**
+ * Запись журнала в файл через буфер: в отличие от {@link java.util.logging.FileHandler},
+ * файл не сбрасывается после каждой записи, а только по {@link #flush()}, который {@link AsyncHandler}
+ * вызывает один раз на пачку записей. Логгеры, пишущие в один файл, получают общий обработчик,
+ * поэтому не открывают файл повторно.
+ */
+public class BatchingFileHandler extends StreamHandler {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Map<String, BatchingFileHandler> byPath = new HashMap<>();
+
+    private BatchingFileHandler(String path) throws IOException {
+        super(new BufferedOutputStream(new FileOutputStream(path, true), BUFFER_SIZE), new SimpleFormatter());
+        // Как у FileHandler: фильтрует уровень логгера, а не обработчик
+        setLevel(Level.ALL);
+    }
+
+    /**
+     * @param path путь к файлу журнала; файл дописывается
+     * @return общий обработчик для этого файла
+     * @throws IOException если файл не удалось открыть
+     */
+    public static synchronized BatchingFileHandler forFile(String path) throws IOException {
+        BatchingFileHandler handler = byPath.get(path);
+        if (handler == null) {
+            handler = new BatchingFileHandler(path);
+            byPath.put(path, handler);
+        }
+        return handler;
+    }
+}
@@ -0,0 +1,41 @@
+package server.logger;
+
+import java.io.IOException;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Настройка логгеров сервера: запись в файл и цветной вывод в консоль через {@link AsyncHandler}.
+ * Уровень задаётся свойством server.logLevel (по умолчанию INFO); сообщения о каждом запросе
+ * пишутся на уровне FINE через поставщиков строки, поэтому при INFO они ничего не стоят.
+ */
+public final class LogSetup {
+    private static final Level LEVEL = Level.parse(System.getProperty("server.logLevel", "INFO"));
+
+    private LogSetup() {
+    }
+
+    /**
+     * Подключает к логгеру асинхронный обработчик, если он ещё не подключён.
+     *
+     * @param logger логгер
+     * @param file файл журнала
+     * @param consoleFormatter форматтер для вывода в консоль
+     * @throws IOException если файл журнала не удалось открыть
+     */
+    public static void install(Logger logger, String file, Formatter consoleFormatter) throws IOException {
+        for (Handler handler : logger.getHandlers()) {
+            if (handler instanceof AsyncHandler) {
+                return;
+            }
+        }
+        ConsoleHandler consoleHandler = new ConsoleHandler();
+        consoleHandler.setFormatter(consoleFormatter);
+        logger.addHandler(new AsyncHandler(BatchingFileHandler.forFile(file), consoleHandler));
+        logger.setLevel(LEVEL);
+        logger.setUseParentHandlers(false);
+    }
+}
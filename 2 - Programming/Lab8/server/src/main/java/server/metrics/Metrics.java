@@ -0,0 +1,83 @@
+package server.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Реестр метрик сервера: счётчики, гистограммы длительностей и измеряемые по запросу значения.
+ * Метрика создаётся при первом обращении по имени; имя может содержать метки в фигурных скобках,
+ * например {@code commands_total{type="ADD"}}. Компоненты берут свои метрики один раз и дальше
+ * обновляют их без поиска по имени. Содержимое выводится в текстовом формате Prometheus
+ * командой консоли metrics и по HTTP, см. {@link MetricsEndpoint}.
+ */
+public final class Metrics {
+    private static final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    /** Квантили, выводимые для гистограмм. */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private Metrics() {
+    }
+
+    /** @return счётчик с этим именем */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /** @return гистограмма длительностей с этим именем */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Регистрирует значение, которое вычисляется при каждом выводе: глубину очереди, число соединений и т.п.
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * @return все метрики в текстовом формате Prometheus; длительности в микросекундах
+     */
+    public static String render() {
+        StringBuilder out = new StringBuilder();
+        counters.forEach((name, counter) -> line(out, name, "", counter.sum()));
+        gauges.forEach((name, gauge) -> line(out, name, "", gauge.getAsLong()));
+        histograms.forEach((name, histogram) -> {
+            if (histogram.getCount() == 0) {
+                return;
+            }
+            for (double quantile : QUANTILES) {
+                line(out, name, "quantile=\"" + quantile + "\"", micros(histogram.getQuantile(quantile)));
+            }
+            line(out, suffixed(name, "_max"), "", micros(histogram.getMax()));
+            line(out, suffixed(name, "_sum"), "", micros(histogram.getSum()));
+            line(out, suffixed(name, "_count"), "", histogram.getCount());
+        });
+        return out.toString();
+    }
+
+    private static void line(StringBuilder out, String name, String label, Object value) {
+        if (!label.isEmpty()) {
+            int brace = name.indexOf('{');
+            name = brace < 0
+                    ? name + "{" + label + "}"
+                    : name.substring(0, name.length() - 1) + "," + label + "}";
+        }
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    /** Добавляет суффикс к имени метрики перед метками. */
+    private static String suffixed(String name, String suffix) {
+        int brace = name.indexOf('{');
+        return brace < 0 ? name + suffix : name.substring(0, brace) + suffix + name.substring(brace);
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,141 @@
+package server.serverUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул прямых {@link ByteBuffer} по классам размеров для входящих и исходящих кадров.
+ * Буфер выдаётся из наименьшего подходящего класса, после использования возвращается
+ * через {@link #release(ByteBuffer)}. Каждый класс хранит не больше заданного объёма свободных
+ * буферов; запросы больше наибольшего класса обслуживаются обычными буферами вне пула.
+ * Потокобезопасен: буферы берут реакторы, а возвращают в том числе потоки конвейера.
+ */
+public class BufferPool {
+    /** Размеры классов в байтах. */
+    private static final int[] CLASS_SIZES = {512, 4 * 1024, 32 * 1024, 256 * 1024, 1024 * 1024};
+
+    private final List<Queue<ByteBuffer>> free;
+    private final AtomicInteger[] freeCount;
+    private final int[] maxFree;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    /**
+     * @param maxBytesPerClass сколько байт свободных буферов хранит каждый класс
+     */
+    public BufferPool(long maxBytesPerClass) {
+        free = new ArrayList<>(CLASS_SIZES.length);
+        freeCount = new AtomicInteger[CLASS_SIZES.length];
+        maxFree = new int[CLASS_SIZES.length];
+        for (int i = 0; i < CLASS_SIZES.length; i++) {
+            free.add(new ConcurrentLinkedQueue<>());
+            freeCount[i] = new AtomicInteger();
+            maxFree[i] = (int) Math.max(1, maxBytesPerClass / CLASS_SIZES[i]);
+        }
+    }
+
+    /**
+     * Выдаёт буфер вместимостью не меньше size, очищенный, с limit = size.
+     *
+     * @param size нужный размер в байтах
+     * @return буфер из пула или, для очень больших размеров, новый буфер вне пула
+     */
+    public ByteBuffer acquire(int size) {
+        acquired.increment();
+        outstanding.incrementAndGet();
+        int cls = classOf(size);
+        if (cls < 0) {
+            oversized.increment();
+            return ByteBuffer.allocate(size);
+        }
+        ByteBuffer buffer = free.get(cls).poll();
+        if (buffer != null) {
+            freeCount[cls].decrementAndGet();
+            hits.increment();
+        } else {
+            buffer = ByteBuffer.allocateDirect(CLASS_SIZES[cls]);
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+
+    /**
+     * Возвращает буфер в пул. Буферы вне пула и излишки класса отдаются сборщику мусора.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        outstanding.decrementAndGet();
+        if (!buffer.isDirect()) {
+            return;
+        }
+        int cls = exactClassOf(buffer.capacity());
+        if (cls < 0 || freeCount[cls].incrementAndGet() > maxFree[cls]) {
+            if (cls >= 0) {
+                freeCount[cls].decrementAndGet();
+            }
+            return;
+        }
+        free.get(cls).offer(buffer);
+    }
+
+    /**
+     * @return наибольший размер, который выдаётся из пула
+     */
+    public int maxPooledSize() {
+        return CLASS_SIZES[CLASS_SIZES.length - 1];
+    }
+
+    private static int classOf(int size) {
+        for (int i = 0; i < CLASS_SIZES.length; i++) {
+            if (size <= CLASS_SIZES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int exactClassOf(int capacity) {
+        for (int i = 0; i < CLASS_SIZES.length; i++) {
+            if (capacity == CLASS_SIZES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** @return доля выдач, обслуженных готовым буфером из пула */
+    public double getHitRate() {
+        long total = acquired.sum();
+        return total == 0 ? 0.0 : (double) hits.sum() / total;
+    }
+
+    /** @return число выданных и ещё не возвращённых буферов */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return строка со статистикой пула для вывода в консоль администратора
+     */
+    public String stats() {
+        StringBuilder retained = new StringBuilder();
+        for (int i = 0; i < CLASS_SIZES.length; i++) {
+            if (i > 0) {
+                retained.append(", ");
+            }
+            retained.append(CLASS_SIZES[i]).append(" Б: ").append(freeCount[i].get());
+        }
+        return String.format("Пул буферов: выдано %d, попаданий %.1f%%, вне пула %d, не возвращено %d; свободные по классам: %s",
+                acquired.sum(), getHitRate() * 100, oversized.sum(), getOutstanding(), retained);
+    }
+}
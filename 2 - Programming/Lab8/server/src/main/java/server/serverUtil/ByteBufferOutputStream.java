@@ -0,0 +1,63 @@
+package server.serverUtil;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Поток записи в буфер из {@link BufferPool}, который сразу становится кадром ответа:
+ * первые 4 байта оставлены под префикс длины. При нехватке места берётся буфер большего класса,
+ * а прежний возвращается в пул.
+ */
+class ByteBufferOutputStream extends OutputStream {
+    private final BufferPool pool;
+    private ByteBuffer buffer;
+
+    ByteBufferOutputStream(BufferPool pool, int initialSize) {
+        this.pool = pool;
+        this.buffer = pool.acquire(Math.max(initialSize, 4 + 64));
+        this.buffer.limit(this.buffer.capacity());
+        this.buffer.position(4);
+    }
+
+    @Override
+    public void write(int b) {
+        ensure(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensure(len);
+        buffer.put(b, off, len);
+    }
+
+    private void ensure(int extra) {
+        if (buffer.remaining() >= extra) {
+            return;
+        }
+        int needed = buffer.position() + extra;
+        ByteBuffer larger = pool.acquire(Math.max(needed, buffer.capacity() * 2));
+        larger.limit(larger.capacity());
+        buffer.flip();
+        larger.put(buffer);
+        pool.release(buffer);
+        buffer = larger;
+    }
+
+    /**
+     * Записывает префикс длины и отдаёт готовый к отправке кадр. После вызова поток не используется.
+     */
+    ByteBuffer toFrame() {
+        buffer.flip();
+        buffer.putInt(0, buffer.limit() - 4);
+        return buffer;
+    }
+
+    /**
+     * Возвращает буфер в пул, если кадр так и не был получен.
+     */
+    void discard() {
+        pool.release(buffer);
+        buffer = null;
+    }
+}
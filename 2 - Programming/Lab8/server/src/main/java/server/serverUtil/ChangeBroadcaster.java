@@ -0,0 +1,219 @@
+package server.serverUtil;
+
+import server.collection.CollectionManager;
+import shared.codec.WireCodec;
+import shared.dto.CommandType;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Рассылка изменений коллекции подписанным соединениям.
+ * Раз в такт (свойство server.pushIntervalMs, по умолчанию 50 мс; 0 отключает рассылку) каждому подписчику,
+ * отставшему от текущей версии, уходит один ответ REFRESH типа {@link CommandType#SUBSCRIBE} с номером
+ * запроса 0: изменения после его версии или снимок. Поэтому серия изменений за такт превращается в одну рассылку.
+ * Подписчики с одинаковыми кодеком и версией получают одно и то же тело, оно кодируется один раз за такт.
+ * Кадры отправляет реактор соединения; если очередь отправки клиента переполнена, кадр отбрасывается,
+ * версия подписчика откатывается, и в следующий такт он получит всё пропущенное одним ответом.
+ * Кадр рассылки не больше {@link #maxFrame} (свойство server.maxPushFrame, по умолчанию размер буфера
+ * ответа клиента): если изменения или снимок в него не помещаются, уходит уведомление без данных,
+ * и клиент сам запрашивает коллекцию повторной подпиской.
+ */
+public class ChangeBroadcaster {
+    private final Logger logger;
+    private final CollectionManager cm;
+    private final BufferPool buffers;
+    private final long intervalMs;
+    /** Наибольший кадр рассылки вместе с префиксом длины; клиент отключается от кадров больше своего буфера. */
+    private final int maxFrame;
+    private final Map<SelectionKey, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final LongAdder pushed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder notifyOnly = new LongAdder();
+    private ScheduledExecutorService timer;
+
+    /**
+     * Подписанное соединение и версия коллекции, до которой оно уже получило изменения.
+     */
+    private static class Subscriber {
+        final SelectionKey key;
+        final WireCodec codec;
+        final RequestPipeline.CompletionSink sink;
+        final AtomicLong version;
+
+        Subscriber(SelectionKey key, WireCodec codec, RequestPipeline.CompletionSink sink, long version) {
+            this.key = key;
+            this.codec = codec;
+            this.sink = sink;
+            this.version = new AtomicLong(version);
+        }
+    }
+
+    /**
+     * Закодированное тело рассылки и версия коллекции, которую оно передаёт.
+     */
+    private static class Encoded {
+        final byte[] body;
+        final long version;
+
+        Encoded(byte[] body, long version) {
+            this.body = body;
+            this.version = version;
+        }
+    }
+
+    /**
+     * @param cm менеджер коллекции, из журнала которого берутся изменения
+     * @param buffers пул буферов для кадров рассылки
+     * @param logger логгер сервера
+     */
+    public ChangeBroadcaster(CollectionManager cm, BufferPool buffers, Logger logger) {
+        this.cm = cm;
+        this.buffers = buffers;
+        this.logger = logger;
+        this.intervalMs = Long.getLong("server.pushIntervalMs", 50);
+        this.maxFrame = Integer.getInteger("server.maxPushFrame", 18920);
+    }
+
+    /**
+     * Запускает поток тактов рассылки.
+     */
+    public void start() {
+        if (intervalMs <= 0) {
+            logger.info("Рассылка изменений отключена");
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "change-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Рассылка изменений: такт " + intervalMs + " мс");
+    }
+
+    /**
+     * Подписывает соединение. Вызывается конвейером после выполнения команды SUBSCRIBE.
+     *
+     * @param version версия коллекции, с которой клиент получил ответ на подписку
+     */
+    void subscribe(SelectionKey key, WireCodec codec, RequestPipeline.CompletionSink sink, long version) {
+        if (timer == null) {
+            return;
+        }
+        subscribers.put(key, new Subscriber(key, codec, sink, version));
+        logger.info("Клиент " + ServerApp.getRemoteAddress(key) + " подписан на изменения коллекции");
+    }
+
+    /**
+     * Отмечает, что соединение получило коллекцию до указанной версии в ответе на свою команду,
+     * чтобы не рассылать ему те же изменения повторно.
+     */
+    void acknowledge(SelectionKey key, long version) {
+        Subscriber subscriber = subscribers.get(key);
+        if (subscriber != null) {
+            subscriber.version.accumulateAndGet(version, Math::max);
+        }
+    }
+
+    /**
+     * Один такт: отправляет каждому отставшему подписчику изменения после его версии.
+     */
+    private void tick() {
+        try {
+            long current = cm.getVersion();
+            Map<WireCodec, Map<Long, Encoded>> encoded = new IdentityHashMap<>();
+            for (Subscriber subscriber : subscribers.values()) {
+                if (!subscriber.key.isValid()) {
+                    subscribers.remove(subscriber.key);
+                    continue;
+                }
+                long from = subscriber.version.get();
+                if (from >= current) {
+                    continue;
+                }
+                Encoded push = encoded.computeIfAbsent(subscriber.codec, c -> new HashMap<>())
+                        .computeIfAbsent(from, v -> encode(subscriber.codec, v));
+                if (push == null) {
+                    continue;
+                }
+                ByteBuffer frame = buffers.acquire(4 + push.body.length);
+                frame.putInt(push.body.length).put(push.body).flip();
+                subscriber.version.accumulateAndGet(push.version, Math::max);
+                pushed.increment();
+                subscriber.sink.push(subscriber.key, frame, () -> {
+                    dropped.increment();
+                    subscriber.version.accumulateAndGet(from, Math::min);
+                });
+            }
+        } catch (RuntimeException e) {
+            logger.severe("Ошибка рассылки изменений: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Кодирует рассылку для клиента с указанной версией. Если кадр с изменениями или снимком больше
+     * {@link #maxFrame}, вместо него кодируется уведомление без изменений и снимка той же версии.
+     *
+     * @return тело рассылки или null, если его не удалось закодировать
+     */
+    private Encoded encode(WireCodec codec, long from) {
+        Response response = new Response(ResponseStatus.REFRESH, "Коллекция изменена", CommandType.SUBSCRIBE);
+        cm.attachChanges(response, from);
+        try {
+            byte[] body = write(codec, response);
+            if (4 + body.length > maxFrame) {
+                Response notice = new Response(ResponseStatus.REFRESH, "Коллекция изменена", CommandType.SUBSCRIBE);
+                notice.setVersion(response.getVersion());
+                body = write(codec, notice);
+                notifyOnly.increment();
+            }
+            return new Encoded(body, response.getVersion());
+        } catch (IOException e) {
+            logger.warning("Ошибка кодирования рассылки: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] write(WireCodec codec, Response response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        codec.writeResponse(response, out);
+        return out.toByteArray();
+    }
+
+    /** @return число подписанных соединений */
+    public int getSubscribers() {
+        return subscribers.size();
+    }
+
+    /**
+     * @return строка со статистикой рассылки для консоли администратора
+     */
+    public String stats() {
+        return String.format("Подписчиков: %d, отправлено рассылок: %d, из них без данных: %d, отброшено: %d",
+                subscribers.size(), pushed.sum(), notifyOnly.sum(), dropped.sum());
+    }
+
+    /**
+     * Останавливает поток тактов.
+     */
+    public void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+}
@@ -1,25 +1,57 @@
 package server.serverUtil;
 
-import server.commands.*;
+import server.commands.CommandsList;
+import shared.commands.Command;
 import shared.dto.CommandType;
 import shared.dto.Request;
 import shared.dto.Response;
 import server.collection.CollectionManager;
 import shared.dto.ResponseStatus;
 
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.logging.Logger;
 
 
 /**
  * Dispatcher команд: читает Request, выполняет соответствующую команду и формирует Response.
+ * Команды берутся из таблицы по типу, а не создаются на каждый запрос; вокруг выполнения
+ * могут быть подключены {@link CommandHook} — замер времени, ограничение допуска и т.п.
  */
 public class CommandDispatcher {
     private static final Logger log = Logger.getLogger(CommandDispatcher.class.getName());
+    /** Команды, к ответу REFRESH которых прикладываются изменения после версии клиента: меняющие коллекцию и подписка. */
+    private static final Set<CommandType> WITH_CHANGES = EnumSet.of(CommandType.ADD, CommandType.ADD_BATCH,
+            CommandType.ADD_IF_MAX, CommandType.UPDATE, CommandType.REMOVE_BY_ID, CommandType.CLEAR, CommandType.REMOVE_HEAD,
+            CommandType.SUBSCRIBE, CommandType.UPDATE_BATCH, CommandType.REMOVE_BATCH);
     private final CollectionManager cm;
+    /** Экземпляры команд, создаются один раз при старте из {@link CommandsList}. */
+    private final EnumMap<CommandType, Command> commands;
+    /** Хуки каждого типа команд, первый — внешний. */
+    private final EnumMap<CommandType, CommandHook[]> hooks = new EnumMap<>(CommandType.class);
 
 
     public CommandDispatcher(CollectionManager cm) {
         this.cm = cm;
+        this.commands = CommandsList.instantiate(cm);
+    }
+
+    /**
+     * Подключает хук к командам указанных типов, а без типов — ко всем. Хуки, подключённые раньше,
+     * оборачивают подключённые позже. Вызывается до начала обработки запросов.
+     *
+     * @param hook хук
+     * @param types типы команд
+     */
+    public void addHook(CommandHook hook, CommandType... types) {
+        for (CommandType type : types.length > 0 ? types : CommandType.values()) {
+            CommandHook[] current = hooks.getOrDefault(type, new CommandHook[0]);
+            CommandHook[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = hook;
+            hooks.put(type, extended);
+        }
     }
 
     /**
@@ -32,65 +64,16 @@ public class CommandDispatcher {
 
         Object[] args = rawArgs != null ? rawArgs : new Object[0];
 
-        Response resp;
-        CommandType respType;
+        Command command = commands.get(type);
+        if (command == null) {
+            return new Response(ResponseStatus.ERROR, "Error");
+        }
 
+        Response resp;
         try {
-            switch (type) {
-                case HELP:
-                    resp = new HelpCommand().execute(args);
-                    break;
-                case ADD:
-                    resp = new AddCommand(cm).execute(args);
-                    break;
-                case ADD_IF_MAX:
-                    resp = new AddIfMaxCommand(cm).execute(args);
-                    break;
-                case REMOVE_BY_ID:
-                    resp = new RemoveByIdCommand(cm).execute(args);
-                    break;
-                case UPDATE:
-                    resp = new UpdateIdCommand(cm).execute(args);
-                    break;
-                case CLEAR:
-                    resp = new ClearCommand(cm).execute(args);
-
-                    break;
-                case SHOW:
-                    resp = new ShowCommand(cm).execute(args);
-                    break;
-                case INFO:
-                    resp = new InfoCommand(cm).execute(args);
-                    break;
-                case AVERAGE_OF_HEIGHT:
-                    resp = new AverageOfHeightCommand(cm).execute(args);
-                    break;
-                case PRINT_ASCENDING:
-                    resp = new PrintAscendingCommand(cm).execute(args);
-
-                    break;
-                case PRINT_FIELD_ASCENDING_HEIGHT:
-                    resp = new PrintFieldAscendingHeightCommand(cm).execute(args);
-                    break;
-                case HEAD:
-                    resp = new HeadCommand(cm).execute(args);
-
-                    break;
-                case REGISTRATION:
-                    resp = new RegistrationCommand(cm).execute(args);
-
-                    break;
-                case AUTHENTICATE:
-                    resp = new AuthenticateCommand(cm).execute(args);
-
-                    break;
-                case REMOVE_HEAD:
-                    resp = new RemoveHeadCommand(cm).execute(args);
-
-                    break;
-
-                default:
-                    resp = new Response(ResponseStatus.ERROR, "Error");
+            resp = invoke(type, command, args, hooks.get(type), 0);
+            if (resp.getStatus() == ResponseStatus.REFRESH && WITH_CHANGES.contains(type)) {
+                cm.attachChanges(resp, request.getKnownVersion());
             }
         } catch (Exception e) {
             log.severe("Ошибка при выполнении " + type + ": " + e.getMessage());
@@ -99,6 +82,15 @@ public class CommandDispatcher {
         return resp;
     }
 
+    /**
+     * Выполняет команду через цепочку хуков, начиная с хука index.
+     */
+    private static Response invoke(CommandType type, Command command, Object[] args, CommandHook[] chain, int index) {
+        if (chain == null || index == chain.length) {
+            return command.execute(args);
+        }
+        return chain[index].around(type, args, () -> invoke(type, command, args, chain, index + 1));
+    }
+
 
 }
-
@@ -0,0 +1,22 @@
+package server.serverUtil;
+
+import shared.dto.CommandType;
+import shared.dto.Response;
+
+import java.util.function.Supplier;
+
+/**
+ * Обёртка вокруг выполнения команды, подключается в {@link CommandDispatcher#addHook}.
+ * Хук может измерить выполнение, отказать в нём, вернув свой ответ без вызова next,
+ * или изменить ответ. Вызывается из потоков конвейера одновременно для разных запросов.
+ */
+@FunctionalInterface
+public interface CommandHook {
+    /**
+     * @param type тип выполняемой команды
+     * @param args аргументы запроса
+     * @param next выполнение следующих хуков и самой команды
+     * @return ответ на запрос
+     */
+    Response around(CommandType type, Object[] args, Supplier<Response> next);
+}
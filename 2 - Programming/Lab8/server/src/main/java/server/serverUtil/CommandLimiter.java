@@ -0,0 +1,49 @@
+package server.serverUtil;
+
+import shared.dto.CommandType;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Хук допуска: ограничивает число одновременно выполняемых команд, к которым подключён.
+ * Сверх предела запрос не ждёт, а сразу получает ответ с ошибкой, чтобы тяжёлые команды
+ * не занимали все потоки конвейера. Предел для типа задаётся свойством server.commandLimit.ТИП,
+ * например -Dserver.commandLimit.ADD_BATCH=2.
+ */
+public class CommandLimiter implements CommandHook {
+    private final Semaphore permits;
+    private final int limit;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param limit сколько команд могут выполняться одновременно
+     */
+    public CommandLimiter(int limit) {
+        this.limit = limit;
+        this.permits = new Semaphore(limit);
+    }
+
+    @Override
+    public Response around(CommandType type, Object[] args, Supplier<Response> next) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            return new Response(ResponseStatus.ERROR, "Сервер занят выполнением команд " + type + ", повторите позже", type);
+        }
+        try {
+            return next.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return строка со статистикой для консоли администратора
+     */
+    public String stats() {
+        return "занято " + (limit - permits.availablePermits()) + " из " + limit + ", отказов " + rejected.sum();
+    }
+}
@@ -0,0 +1,85 @@
+package server.serverUtil;
+
+import server.metrics.Histogram;
+import server.metrics.Metrics;
+import shared.dto.CommandType;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Хук, измеряющий время выполнения команд: число вызовов, среднее и наибольшее время по каждому типу.
+ * Команды дольше порога (свойство server.slowCommandMs, по умолчанию 1000 мс) попадают в журнал.
+ * Те же замеры публикуются в {@link Metrics}: гистограмма времени, число вызовов и ошибок по каждому типу.
+ */
+public class CommandTimer implements CommandHook {
+    private static final Logger logger = ServerApp.logger;
+    private final long slowNanos = Long.getLong("server.slowCommandMs", 1000) * 1_000_000;
+    private final Map<CommandType, Stats> stats = new EnumMap<>(CommandType.class);
+
+    private static class Stats {
+        final LongAdder calls = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final Histogram latency;
+        final LongAdder errors;
+
+        Stats(CommandType type) {
+            String label = "{type=\"" + type + "\"}";
+            latency = Metrics.histogram("command_latency_us" + label);
+            errors = Metrics.counter("command_errors_total" + label);
+            Metrics.gauge("commands_total" + label, calls::sum);
+        }
+    }
+
+    public CommandTimer() {
+        for (CommandType type : CommandType.values()) {
+            stats.put(type, new Stats(type));
+        }
+    }
+
+    @Override
+    public Response around(CommandType type, Object[] args, Supplier<Response> next) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Response response = next.get();
+            failed = response == null || response.getStatus() == ResponseStatus.ERROR;
+            return response;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Stats s = stats.get(type);
+            s.calls.increment();
+            s.totalNanos.add(elapsed);
+            s.maxNanos.accumulateAndGet(elapsed, Math::max);
+            s.latency.record(elapsed);
+            if (failed) {
+                s.errors.increment();
+            }
+            if (elapsed >= slowNanos) {
+                logger.warning("Медленная команда " + type + ": " + elapsed / 1_000_000 + " мс");
+            }
+        }
+    }
+
+    /**
+     * @return таблица по выполнявшимся командам для консоли администратора
+     */
+    public String stats() {
+        StringBuilder out = new StringBuilder(String.format("%-30s %10s %12s %12s", "команда", "вызовов", "среднее, мс", "макс, мс"));
+        stats.forEach((type, s) -> {
+            long calls = s.calls.sum();
+            if (calls > 0) {
+                out.append(String.format("%n%-30s %10d %12.3f %12.3f", type, calls,
+                        s.totalNanos.sum() / 1e6 / calls, s.maxNanos.get() / 1e6));
+            }
+        });
+        return out.toString();
+    }
+}
@@ -0,0 +1,513 @@
+package server.serverUtil;
+
+import server.metrics.Metrics;
+import shared.codec.Handshake;
+import shared.codec.SerializationCodec;
+import shared.codec.WireCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Поток ввода-вывода со своим {@link Selector}. Обслуживает часть клиентских соединений:
+ * читает кадры запросов, передаёт их в общий {@link RequestPipeline} и отправляет готовые ответы.
+ * Соединения передаёт ему приёмник {@link ServerApp}; все операции с ключами выполняются
+ * только в потоке реактора, другие потоки лишь кладут данные в очереди и будят селектор.
+ */
+class Reactor implements Runnable, RequestPipeline.CompletionSink {
+    /** Сколько запросов одного соединения могут одновременно обрабатываться или ждать отправки ответа. */
+    private static final int MAX_PER_CONNECTION = Integer.getInteger("server.maxPerConnection", 32);
+    /** Разрешён ли двоичный протокол; при false сервер отвечает отказом на приветствие клиента. */
+    private static final boolean BINARY_PROTOCOL = Boolean.parseBoolean(System.getProperty("server.binaryProtocol", "true"));
+    /** Флаги приветствия, которые сервер принимает; свойство server.compression=false отключает сжатие кадров. */
+    private static final int SUPPORTED_FLAGS = Boolean.parseBoolean(System.getProperty("server.compression", "true"))
+            ? Handshake.FLAG_DEFLATE : 0;
+    private static final Logger logger = ServerApp.logger;
+    /** Байты, прочитанные и отправленные всеми реакторами. */
+    private static final LongAdder bytesIn = Metrics.counter("network_bytes_in_total");
+    private static final LongAdder bytesOut = Metrics.counter("network_bytes_out_total");
+
+    private final Selector selector;
+    private final RequestPipeline pipeline;
+    private final BufferPool buffers;
+    private final Thread thread;
+    /** Принятые соединения, ожидающие регистрации в селекторе реактора. */
+    private final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+    /** Готовые ответы конвейера. */
+    private final Queue<Completed> completed = new ConcurrentLinkedQueue<>();
+    /** Число соединений реактора, используется приёмником для распределения нагрузки. */
+    private final AtomicInteger connections = new AtomicInteger();
+    /** Прочитанные запросы, отложенные, пока конвейер заполнен. */
+    private final Deque<PendingFrame> deferred = new ArrayDeque<>();
+    /** Ключи, у которых снято чтение из-за заполненного конвейера. */
+    private final List<SelectionKey> pausedKeys = new ArrayList<>();
+    /** Флаг, указывающий, что чтение новых запросов приостановлено. */
+    private boolean readsPaused = false;
+    private volatile boolean running = true;
+
+    /**
+     * Состояние клиентского соединения.
+     */
+    static class ClientState {
+        /** Буфер для чтения длины входящих данных (4 байта). */
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        /** Буфер пула для чтения данных запроса. */
+        ByteBuffer dataBuffer = null;
+        /** Длина ожидаемых данных в байтах. */
+        int dataLength = -1;
+        /** Очередь отправки: кадры ответов из пула буферов, ещё не принятые ядром. */
+        final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+        /** Число запросов соединения, находящихся в конвейере. */
+        int inFlight = 0;
+        /** Флаг, указывающий, что ключ лежит в списке приостановленных. */
+        boolean paused = false;
+        /** Кодек соединения; меняется только приветствием в первом кадре. */
+        WireCodec codec = SerializationCodec.INSTANCE;
+        /** Флаг, указывающий, что ещё не прочитан ни один кадр и приветствие возможно. */
+        boolean firstFrame = true;
+
+        /**
+         * @return число запросов, на которые ответ ещё не отправлен полностью
+         */
+        int pending() {
+            return inFlight + outbound.size();
+        }
+    }
+
+    /**
+     * Прочитанный, но ещё не поставленный в конвейер запрос.
+     */
+    private static class PendingFrame {
+        final SelectionKey key;
+        final ByteBuffer frame;
+
+        PendingFrame(SelectionKey key, ByteBuffer frame) {
+            this.key = key;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * Готовый ответ: ключ клиента и кадр ответа (null, если ответ получить не удалось).
+     * У рассылки изменений задано действие на случай, если кадр придётся отбросить.
+     */
+    private static class Completed {
+        final SelectionKey key;
+        final ByteBuffer frame;
+        final Runnable onDropped;
+
+        Completed(SelectionKey key, ByteBuffer frame, Runnable onDropped) {
+            this.key = key;
+            this.frame = frame;
+            this.onDropped = onDropped;
+        }
+    }
+
+    /**
+     * @param name имя потока реактора
+     * @param pipeline общий конвейер обработки запросов
+     * @param buffers общий пул буферов для кадров
+     * @throws IOException если не удалось открыть селектор
+     */
+    Reactor(String name, RequestPipeline pipeline, BufferPool buffers) throws IOException {
+        this.selector = Selector.open();
+        this.pipeline = pipeline;
+        this.buffers = buffers;
+        this.thread = new Thread(this, name);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Передаёт реактору принятое соединение. Может вызываться из любого потока.
+     */
+    void register(SocketChannel channel) {
+        connections.incrementAndGet();
+        incoming.add(channel);
+        selector.wakeup();
+    }
+
+    /** @return число соединений реактора */
+    int getConnections() {
+        return connections.get();
+    }
+
+    String getName() {
+        return thread.getName();
+    }
+
+    @Override
+    public void complete(SelectionKey key, ByteBuffer frame) {
+        completed.add(new Completed(key, frame, null));
+        selector.wakeup();
+    }
+
+    @Override
+    public void push(SelectionKey key, ByteBuffer frame, Runnable onDropped) {
+        completed.add(new Completed(key, frame, onDropped));
+        selector.wakeup();
+    }
+
+    /**
+     * Будит реактор, чтобы он проверил, можно ли возобновить чтение.
+     */
+    void wakeup() {
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select(500);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        readRequest(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        writeResponse(key);
+                    }
+                }
+                registerIncoming();
+                drainCompleted();
+            } catch (IOException e) {
+                logger.severe("Ошибка реактора " + getName() + ": " + e.getMessage());
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            close((SocketChannel) key.channel(), key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.warning("Ошибка при закрытии селектора " + getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Регистрирует в селекторе соединения, переданные приёмником.
+     */
+    private void registerIncoming() {
+        SocketChannel channel;
+        while ((channel = incoming.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                SelectionKey key = channel.register(selector, 0, new ClientState());
+                updateInterest(key);
+                logger.info("Клиент " + ServerApp.getRemoteAddress(channel) + " обслуживается " + getName());
+            } catch (IOException e) {
+                logger.warning("Не удалось зарегистрировать соединение: " + e.getMessage());
+                connections.decrementAndGet();
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Читает кадр запроса от клиента и передаёт его в конвейер {@link RequestPipeline}.
+     *
+     * @param key ключ селектора для клиентского канала
+     * @throws IOException если произошла ошибка чтения
+     */
+    private void readRequest(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            logger.warning("Чтение с невалидного ключа");
+            return;
+        }
+
+        SocketChannel clientChannel = (SocketChannel) key.channel();
+        ClientState state = (ClientState) key.attachment();
+        if (state == null) {
+            logger.severe("State не инициализирован для " + ServerApp.getRemoteAddress(clientChannel));
+            close(clientChannel, key);
+            return;
+        }
+
+        ByteBuffer buffer = (state.dataBuffer != null ? state.dataBuffer : state.lengthBuffer);
+        int bytesRead = clientChannel.read(buffer);
+
+        if (bytesRead == -1) {
+            logger.info("Клиент отключился: " + ServerApp.getRemoteAddress(clientChannel));
+            close(clientChannel, key);
+            return;
+        }
+        bytesIn.add(bytesRead);
+
+        if (buffer.hasRemaining()) {
+            logger.fine(() -> "Частичное чтение от " + ServerApp.getRemoteAddress(clientChannel));
+            return;
+        }
+
+        if (state.dataBuffer == null) {
+            state.lengthBuffer.flip();
+            state.dataLength = state.lengthBuffer.getInt();
+            state.lengthBuffer.clear();
+            if (state.dataLength <= 0 || state.dataLength > ServerApp.MAX_DATA_LENGTH) {
+                logger.warning("Неверный размер данных: " + state.dataLength);
+                close(clientChannel, key);
+                return;
+            }
+            state.dataBuffer = buffers.acquire(state.dataLength);
+            int length = state.dataLength;
+            logger.fine(() -> "Ожидаем данные длиной " + length + " от " + ServerApp.getRemoteAddress(clientChannel));
+        } else {
+            ByteBuffer frame = state.dataBuffer.flip();
+            state.dataBuffer = null;
+            state.dataLength = -1;
+            if (state.firstFrame) {
+                state.firstFrame = false;
+                int hello = Handshake.parse(frame);
+                if (hello >= 0) {
+                    buffers.release(frame);
+                    acceptHandshake(key, state, hello);
+                    return;
+                }
+            }
+
+            // Клиент может прислать следующие запросы, не дожидаясь ответа, но не больше MAX_PER_CONNECTION
+            state.inFlight++;
+            updateInterest(key);
+            if (!pipeline.trySubmit(key, frame, state.codec, this)) {
+                deferred.add(new PendingFrame(key, frame));
+                pauseReading();
+            }
+        }
+    }
+
+    /**
+     * Отвечает на приветствие клиента: переключает соединение на предложенную версию двоичного протокола,
+     * если она поддерживается, иначе оставляет сериализацию Java и отвечает отказом.
+     * Из запрошенных флагов принимаются поддерживаемые сервером.
+     */
+    private void acceptHandshake(SelectionKey key, ClientState state, int hello) {
+        int version = Handshake.version(hello);
+        int flags = Handshake.flags(hello) & SUPPORTED_FLAGS;
+        WireCodec codec = BINARY_PROTOCOL ? Handshake.codecFor(version) : null;
+        state.codec = Handshake.withFlags(codec != null ? codec : SerializationCodec.INSTANCE, flags);
+        ByteBuffer reply = buffers.acquire(Handshake.FRAME_LENGTH);
+        Handshake.putFrame(reply, (codec != null ? version : Handshake.REJECTED) | flags);
+        reply.flip();
+        logger.info("Кодек соединения " + ServerApp.getRemoteAddress(key) + ": " + state.codec.name());
+        enqueueResponse(key, reply);
+    }
+
+    /**
+     * Разбирает готовые ответы конвейера и переключает их ключи на запись,
+     * затем ставит в конвейер отложенные запросы и при появлении места возобновляет чтение.
+     * Вызывается только из потока реактора.
+     */
+    private void drainCompleted() {
+        Completed done;
+        while ((done = completed.poll()) != null) {
+            SelectionKey key = done.key;
+            if (!key.isValid()) {
+                buffers.release(done.frame);
+                continue;
+            }
+            if (done.onDropped != null) {
+                deliverPush(key, done);
+                continue;
+            }
+            if (done.frame == null) {
+                close((SocketChannel) key.channel(), key);
+                continue;
+            }
+            ((ClientState) key.attachment()).inFlight--;
+            enqueueResponse(key, done.frame);
+        }
+        while (!deferred.isEmpty()) {
+            PendingFrame pending = deferred.peek();
+            if (!pending.key.isValid()) {
+                buffers.release(pending.frame);
+            } else if (!pipeline.trySubmit(pending.key, pending.frame, ((ClientState) pending.key.attachment()).codec, this)) {
+                break;
+            }
+            deferred.poll();
+        }
+        if (readsPaused && deferred.isEmpty() && pipeline.hasCapacity()) {
+            resumeReading();
+        }
+    }
+
+    /**
+     * Ставит кадр рассылки в очередь отправки. Рассылка не занимает место в конвейере, но клиенту,
+     * у которого уже {@link #MAX_PER_CONNECTION} неотправленных кадров, кадр не добавляется:
+     * он отбрасывается, и рассылка повторит пропущенное в следующий такт.
+     */
+    private void deliverPush(SelectionKey key, Completed push) {
+        if (((ClientState) key.attachment()).outbound.size() >= MAX_PER_CONNECTION) {
+            buffers.release(push.frame);
+            push.onDropped.run();
+            return;
+        }
+        enqueueResponse(key, push.frame);
+    }
+
+    /**
+     * Снимает OP_READ со всех клиентов реактора, пока конвейер заполнен: данные остаются в буферах ядра,
+     * и клиенты упираются в управление потоком TCP, а не в память сервера.
+     */
+    private void pauseReading() {
+        if (readsPaused) {
+            return;
+        }
+        readsPaused = true;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                updateInterest(key);
+            }
+        }
+        logger.warning("Конвейер заполнен (" + pipeline.getInFlight() + " запросов), чтение приостановлено");
+    }
+
+    /**
+     * Возвращает OP_READ клиентам, у которых чтение было приостановлено.
+     */
+    private void resumeReading() {
+        readsPaused = false;
+        for (SelectionKey key : pausedKeys) {
+            if (key.isValid()) {
+                ((ClientState) key.attachment()).paused = false;
+                updateInterest(key);
+            }
+        }
+        pausedKeys.clear();
+        logger.info("Чтение запросов возобновлено");
+    }
+
+    /**
+     * Ставит ответ в очередь отправки клиента и сразу пытается его записать.
+     *
+     * @param key ключ клиентского канала
+     * @param frame кадр ответа из пула буферов
+     */
+    private void enqueueResponse(SelectionKey key, ByteBuffer frame) {
+        ClientState state = (ClientState) key.attachment();
+        state.outbound.add(frame);
+        try {
+            flush(key);
+        } catch (IOException e) {
+            logger.warning("Ошибка отправки ответа: " + e.getMessage());
+            close((SocketChannel) key.channel(), key);
+        }
+    }
+
+    /**
+     * Дописывает очередь отправки, когда канал снова готов к записи.
+     *
+     * @throws IOException если произошла ошибка записи
+     */
+    private void writeResponse(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            logger.warning("Запись в невалидный ключ");
+            return;
+        }
+        try {
+            flush(key);
+        } catch (IOException e) {
+            logger.warning("Ошибка отправки ответа: " + e.getMessage());
+            close((SocketChannel) key.channel(), key);
+        }
+    }
+
+    /**
+     * Записывает из очереди отправки столько, сколько примет ядро, одним сборным write;
+     * полностью отправленные кадры возвращаются в пул. Если записано не всё, остаётся OP_WRITE,
+     * и запись продолжится при следующей готовности канала; реактор при этом не блокируется.
+     *
+     * @throws IOException если произошла ошибка записи
+     */
+    private void flush(SelectionKey key) throws IOException {
+        SocketChannel clientChannel = (SocketChannel) key.channel();
+        Deque<ByteBuffer> outbound = ((ClientState) key.attachment()).outbound;
+        while (!outbound.isEmpty()) {
+            long written = clientChannel.write(outbound.toArray(new ByteBuffer[0]));
+            bytesOut.add(written);
+            while (!outbound.isEmpty() && !outbound.peekFirst().hasRemaining()) {
+                buffers.release(outbound.pollFirst());
+            }
+            if (written == 0 && !outbound.isEmpty()) {
+                break;
+            }
+        }
+        if (outbound.isEmpty()) {
+            logger.fine(() -> "Ответы отправлены " + ServerApp.getRemoteAddress(clientChannel));
+        }
+        updateInterest(key);
+    }
+
+    /**
+     * Выставляет интерес ключа по состоянию соединения: OP_WRITE, пока есть что отправлять,
+     * OP_READ, пока у клиента меньше {@link #MAX_PER_CONNECTION} необработанных запросов
+     * и чтение не приостановлено из-за заполненного конвейера.
+     */
+    private void updateInterest(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        ClientState state = (ClientState) key.attachment();
+        int ops = state.outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+        if (state.pending() < MAX_PER_CONNECTION) {
+            if (!readsPaused) {
+                ops |= SelectionKey.OP_READ;
+            } else if (!state.paused) {
+                state.paused = true;
+                pausedKeys.add(key);
+            }
+        }
+        key.interestOps(ops);
+    }
+
+    /**
+     * Закрывает соединение клиента.
+     */
+    private void close(SocketChannel clientChannel, SelectionKey key) {
+        if (key.isValid()) {
+            connections.decrementAndGet();
+            ClientState state = (ClientState) key.attachment();
+            buffers.release(state.dataBuffer);
+            state.dataBuffer = null;
+            while (!state.outbound.isEmpty()) {
+                buffers.release(state.outbound.pollFirst());
+            }
+        }
+        ServerApp.closeClient(clientChannel, key);
+    }
+
+    /**
+     * Останавливает реактор и закрывает его соединения.
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package server.serverUtil;
+
+import server.metrics.Histogram;
+import server.metrics.Metrics;
+import shared.codec.MalformedRequestException;
+import shared.codec.WireCodec;
+import shared.dto.CommandType;
+import shared.dto.Request;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Конвейер обработки запросов из трёх стадий: декодирование, выполнение команды и кодирование ответа.
+ * Формат кадров задаёт {@link WireCodec}, согласованный для соединения.
+ * Каждая стадия — свой пул потоков фиксированного размера с ограниченной очередью, стадии передают
+ * друг другу задачи без блокирующего ожидания. Готовый ответ передаётся {@link CompletionSink}
+ * того реактора, который прочитал запрос. О версии коллекции в ответах узнаёт {@link ChangeBroadcaster}.
+ * Число запросов в конвейере ограничено: пока он заполнен, реакторы не читают новые запросы.
+ * <p>
+ * Свойство server.executionMode=virtual включает другой режим: каждый запрос целиком проходит
+ * декодирование, выполнение и кодирование в своём виртуальном потоке, а число одновременно
+ * выполняемых команд ограничено семафором (свойство server.dbPermits, по умолчанию размер пула соединений).
+ * Если JVM не поддерживает виртуальные потоки, используются обычные потоки по требованию.
+ */
+public class RequestPipeline {
+    private final Logger logger;
+    private final CommandDispatcher dispatcher;
+    private final BufferPool buffers;
+    private final ChangeBroadcaster broadcaster;
+    private final Histogram decodeLatency = Metrics.histogram("stage_latency_us{stage=\"decode\"}");
+    private final Histogram commandLatency = Metrics.histogram("stage_latency_us{stage=\"command\"}");
+    private final Histogram encodeLatency = Metrics.histogram("stage_latency_us{stage=\"encode\"}");
+
+    private ThreadPoolExecutor decodePool;
+    private ThreadPoolExecutor executePool;
+    private ThreadPoolExecutor encodePool;
+    /** Исполнитель режима virtual: поток на запрос; null в режиме стадий. */
+    private ExecutorService perRequest;
+    /** Ограничение на число одновременно выполняемых команд в режиме virtual. */
+    private Semaphore dbPermits;
+
+    /** Максимальное число запросов, одновременно находящихся в конвейере. */
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /** Вызывается, когда конвейер разгрузился до половины и приостановленное чтение можно возобновить. */
+    private volatile Runnable capacityListener;
+
+    /**
+     * Создаёт конвейер. Размеры стадий задаются свойствами server.decodeThreads, server.commandThreads
+     * и server.encodeThreads, ограничение на число запросов — свойством server.maxInFlight.
+     *
+     * @param dispatcher диспетчер команд
+     * @param buffers пул буферов для кадров
+     * @param broadcaster рассылка изменений, в которой подписываются соединения
+     * @param logger логгер сервера
+     */
+    public RequestPipeline(CommandDispatcher dispatcher, BufferPool buffers, ChangeBroadcaster broadcaster, Logger logger) {
+        this.dispatcher = dispatcher;
+        this.buffers = buffers;
+        this.broadcaster = broadcaster;
+        this.logger = logger;
+        this.maxInFlight = Integer.getInteger("server.maxInFlight", 256);
+        if ("virtual".equalsIgnoreCase(System.getProperty("server.executionMode"))) {
+            this.perRequest = perRequestExecutor();
+            this.dbPermits = new Semaphore(Integer.getInteger("server.dbPermits",
+                    Integer.getInteger("db.pool.size", 8)), true);
+        } else {
+            this.decodePool = stage("decode", Integer.getInteger("server.decodeThreads", 2));
+            this.executePool = stage("command", Integer.getInteger("server.commandThreads", 4));
+            this.encodePool = stage("encode", Integer.getInteger("server.encodeThreads", 2));
+        }
+    }
+
+    /**
+     * Создаёт исполнитель «виртуальный поток на задачу». Метод ищется через отражение,
+     * чтобы сервер собирался и запускался и на JDK без виртуальных потоков.
+     */
+    private ExecutorService perRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            logger.info("Режим выполнения: виртуальный поток на запрос");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warning("Виртуальные потоки недоступны в этой JVM, используются обычные потоки на запрос");
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "request-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private ThreadPoolExecutor stage(String name, int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxInFlight), factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @return true, если конвейер разгружен настолько, что чтение можно возобновить
+     */
+    public boolean hasCapacity() {
+        return inFlight.get() <= maxInFlight / 2;
+    }
+
+    /** @return число запросов в конвейере */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Регистрирует в {@link Metrics} число запросов в конвейере и глубину очередей стадий.
+     */
+    public void registerMetrics() {
+        Metrics.gauge("pipeline_in_flight", this::getInFlight);
+        if (perRequest != null) {
+            Metrics.gauge("pipeline_db_permits_available", dbPermits::availablePermits);
+            return;
+        }
+        Metrics.gauge("pipeline_queue_depth{stage=\"decode\"}", () -> decodePool.getQueue().size());
+        Metrics.gauge("pipeline_queue_depth{stage=\"command\"}", () -> executePool.getQueue().size());
+        Metrics.gauge("pipeline_queue_depth{stage=\"encode\"}", () -> encodePool.getQueue().size());
+    }
+
+    /**
+     * Ставит прочитанный кадр в конвейер, если в нём есть место. Вызывается из потоков реакторов
+     * и не блокируется; место занимается атомарно, поэтому реакторы вместе не превысят предел.
+     *
+     * @param key ключ клиентского канала
+     * @param frame буфер пула с закодированным запросом без префикса длины; конвейер вернёт его в пул
+     * @param codec кодек соединения, которым декодируется запрос и кодируется ответ
+     * @param sink получатель готового ответа
+     * @return false, если конвейер заполнен и кадр не принят
+     */
+    public boolean trySubmit(SelectionKey key, ByteBuffer frame, WireCodec codec, CompletionSink sink) {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        if (perRequest != null) {
+            handOff(perRequest, key, sink, () -> runToCompletion(key, frame, codec, sink));
+        } else {
+            handOff(decodePool, key, sink, () -> decode(key, frame, codec, sink));
+        }
+        return true;
+    }
+
+    /**
+     * Задаёт действие, выполняемое, когда заполненный конвейер разгрузился до половины.
+     */
+    public void setCapacityListener(Runnable listener) {
+        this.capacityListener = listener;
+    }
+
+    /**
+     * Режим virtual: весь запрос в одном потоке, выполнение команды — под семафором.
+     */
+    private void runToCompletion(SelectionKey key, ByteBuffer frame, WireCodec codec, CompletionSink sink) {
+        Request request = decodeRequest(key, frame, codec, sink);
+        if (request == null) {
+            return;
+        }
+        Response response;
+        dbPermits.acquireUninterruptibly();
+        try {
+            response = dispatch(request);
+            track(key, request, response, codec, sink);
+        } catch (RuntimeException | Error e) {
+            failed(key, request, e, sink);
+            return;
+        } finally {
+            dbPermits.release();
+        }
+        encode(key, response, codec, sink);
+    }
+
+    private void decode(SelectionKey key, ByteBuffer frame, WireCodec codec, CompletionSink sink) {
+        Request request = decodeRequest(key, frame, codec, sink);
+        if (request != null) {
+            handOff(executePool, key, sink, () -> execute(key, request, codec, sink));
+        }
+    }
+
+    /**
+     * Декодирует запрос прямо из буфера пула и возвращает буфер в пул.
+     * При ошибке формата сразу отправляет клиенту ответ с ошибкой — с номером запроса, если его удалось
+     * прочитать; при любом другом сбое завершает запрос без ответа, и реактор закрывает соединение.
+     *
+     * @return запрос или null, если кадр не удалось разобрать
+     */
+    private Request decodeRequest(SelectionKey key, ByteBuffer frame, WireCodec codec, CompletionSink sink) {
+        Request request;
+        long start = System.nanoTime();
+        try {
+            request = codec.readRequest(new ByteBufferInputStream(frame));
+            decodeLatency.record(System.nanoTime() - start);
+        } catch (IOException e) {
+            logger.warning("Ошибка декодирования запроса от " + ServerApp.getRemoteAddress(key) + ": " + e.getMessage());
+            Response error = new Response(ResponseStatus.ERROR, "Ошибка обработки данных: " + e.getMessage());
+            if (e instanceof MalformedRequestException malformed) {
+                // Номер запроса прочитан: клиент сопоставит ошибку со своим ожиданием
+                error.setRequestId(malformed.getRequestId());
+            }
+            encode(key, error, codec, sink);
+            return null;
+        } catch (RuntimeException | Error e) {
+            // Кадр не разобрать и не ответить на него осмысленно: соединение закрывается, место в конвейере освобождается
+            logger.warning("Недопустимый кадр от " + ServerApp.getRemoteAddress(key) + ", соединение закрывается: " + e);
+            complete(key, null, sink);
+            return null;
+        } finally {
+            buffers.release(frame);
+        }
+        logger.fine(() -> "Запрос " + request.getType() + " от " + ServerApp.getRemoteAddress(key));
+        return request;
+    }
+
+    private void execute(SelectionKey key, Request request, WireCodec codec, CompletionSink sink) {
+        Response response;
+        try {
+            response = dispatch(request);
+            track(key, request, response, codec, sink);
+        } catch (RuntimeException | Error e) {
+            failed(key, request, e, sink);
+            return;
+        }
+        handOff(encodePool, key, sink, () -> encode(key, response, codec, sink));
+    }
+
+    /**
+     * Завершает запрос без ответа, если команда упала с ошибкой, которую {@link #dispatch} не превращает
+     * в ответ (например, {@link Error}): место в конвейере освобождается, реактор закрывает соединение.
+     */
+    private void failed(SelectionKey key, Request request, Throwable e, CompletionSink sink) {
+        logger.severe("Сбой выполнения команды " + request.getType() + ", соединение закрывается: " + e);
+        complete(key, null, sink);
+    }
+
+    private Response dispatch(Request request) {
+        Response response;
+        long start = System.nanoTime();
+        try {
+            logger.fine(() -> "Обработка команды " + request.getType() + " в потоке " + Thread.currentThread().getName());
+            response = dispatcher.dispatch(request);
+            logger.fine(() -> "Команда " + request.getType() + " успешно обработана");
+        } catch (Exception e) {
+            logger.severe("Ошибка обработки команды " + request.getType() + ": " + e.getMessage());
+            response = new Response(ResponseStatus.ERROR, "Ошибка обработки: " + e.getMessage());
+        }
+        commandLatency.record(System.nanoTime() - start);
+        response.setRequestId(request.getRequestId());
+        return response;
+    }
+
+    /**
+     * Передаёт рассылке версию коллекции, которую получит клиент с этим ответом:
+     * ответ на SUBSCRIBE подписывает соединение, остальные лишь сдвигают версию подписчика.
+     */
+    private void track(SelectionKey key, Request request, Response response, WireCodec codec, CompletionSink sink) {
+        if (response.getVersion() == 0) {
+            return;
+        }
+        if (request.getType() == CommandType.SUBSCRIBE) {
+            broadcaster.subscribe(key, codec, sink, response.getVersion());
+        } else {
+            broadcaster.acknowledge(key, response.getVersion());
+        }
+    }
+
+    /**
+     * Кодирует ответ сразу в буфер пула, который вместе с префиксом длины становится кадром для отправки.
+     */
+    private void encode(SelectionKey key, Response response, WireCodec codec, CompletionSink sink) {
+        ByteBufferOutputStream out = new ByteBufferOutputStream(buffers, 4 * 1024);
+        long start = System.nanoTime();
+        try {
+            codec.writeResponse(response, out);
+            encodeLatency.record(System.nanoTime() - start);
+        } catch (IOException | RuntimeException | Error e) {
+            logger.warning("Ошибка кодирования ответа: " + e);
+            out.discard();
+            complete(key, null, sink);
+            return;
+        }
+        complete(key, out.toFrame(), sink);
+    }
+
+    /**
+     * Передаёт задачу следующей стадии. Очереди стадий не меньше предела конвейера,
+     * поэтому отказ возможен только после остановки; тогда запрос завершается без ответа.
+     */
+    private void handOff(ExecutorService stage, SelectionKey key, CompletionSink sink, Runnable task) {
+        try {
+            stage.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warning("Стадия конвейера не приняла запрос: " + e.getMessage());
+            complete(key, null, sink);
+        }
+    }
+
+    private void complete(SelectionKey key, ByteBuffer frame, CompletionSink sink) {
+        int left = inFlight.decrementAndGet();
+        sink.complete(key, frame);
+        Runnable listener = capacityListener;
+        if (left == maxInFlight / 2 && listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Останавливает все стадии, дожидаясь завершения уже принятых запросов.
+     */
+    public void shutdown() {
+        ExecutorService[] stages = perRequest != null
+                ? new ExecutorService[]{perRequest}
+                : new ExecutorService[]{decodePool, executePool, encodePool};
+        for (ExecutorService stage : stages) {
+            stage.shutdown();
+            try {
+                if (!stage.awaitTermination(5, TimeUnit.SECONDS)) {
+                    stage.shutdownNow();
+                    logger.warning("Принудительное завершение стадии конвейера");
+                }
+            } catch (InterruptedException e) {
+                stage.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Получатель готовых ответов. Вызывается из потоков конвейера и рассылки изменений.
+     */
+    public interface CompletionSink {
+        /**
+         * @param key ключ клиента
+         * @param frame кадр ответа из пула буферов (префикс длины и тело) или null, если ответ получить не удалось
+         */
+        void complete(SelectionKey key, ByteBuffer frame);
+
+        /**
+         * Отправляет клиенту кадр, не относящийся ни к одному его запросу.
+         *
+         * @param key ключ клиента
+         * @param frame кадр из пула буферов (префикс длины и тело)
+         * @param onDropped вызывается, если кадр отброшен, потому что клиент не успевает читать
+         */
+        void push(SelectionKey key, ByteBuffer frame, Runnable onDropped);
+    }
+}
@@ -1,16 +1,18 @@
 package server.serverUtil;
 
 import server.collection.CollectionManager;
+import server.dataBase.ConnectionPool;
+import server.dataBase.DataBaseManager;
 import server.dataBase.FileReader;
 import server.logger.ColorFormatter;
 import server.logger.DbColorFormatter;
-import shared.dto.Request;
-import shared.dto.Response;
-import shared.dto.ResponseStatus;
+import server.logger.LogSetup;
+import server.metrics.Metrics;
+import server.metrics.MetricsEndpoint;
+import shared.dto.CommandType;
 
 import java.io.*;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
@@ -18,58 +20,82 @@ import java.nio.channels.SocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Scanner;
-import java.util.concurrent.*;
 import java.util.logging.*;
 
 /**
  * Главный класс серверного приложения, реализующий неблокирующий сервер
  * с использованием {@link Selector} и {@link SocketChannel} для обработки клиентских запросов.
+ * Поток сервера только принимает подключения и распределяет их по {@link Reactor} — потокам
+ * ввода-вывода со своими селекторами (число задаётся свойством server.reactors, по умолчанию число ядер);
+ * новое соединение получает реактор с наименьшим числом клиентов.
  * Обрабатывает команды через {@link CommandDispatcher} и управляет коллекцией через {@link CollectionManager}.
  */
 public class ServerApp {
     /** Порт, на котором сервер принимает подключения. */
     private static final int PORT = 4899;
     /** Максимальный размер данных в байтах для одного запроса. */
-    private static final int MAX_DATA_LENGTH = 1024 * 1024;
+    static final int MAX_DATA_LENGTH = 1024 * 1024;
     /** Логгер для записи событий сервера. */
     public static final Logger logger = Logger.getLogger(ServerApp.class.getName());
 
-    private final ForkJoinPool writePool = new ForkJoinPool();
-    ExecutorService commandPool = Executors.newFixedThreadPool(4);
-
-    /**
-     * Внутренний класс для хранения состояния клиентского соединения.
-     */
-    static class ClientState {
-        /** Буфер для чтения длины входящих данных (4 байта). */
-        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
-        /** Буфер для чтения данных запроса. */
-        ByteBuffer dataBuffer = null;
-        /** Длина ожидаемых данных в байтах. */
-        int dataLength = -1;
-    }
+    /** Пул прямых буферов для входящих и исходящих кадров; объём свободных буферов на класс — свойство server.bufferPool.maxBytesPerClass. */
+    private final BufferPool buffers = new BufferPool(Long.getLong("server.bufferPool.maxBytesPerClass", 8L * 1024 * 1024));
+    /** Рассылка изменений коллекции подписанным клиентам. */
+    private ChangeBroadcaster broadcaster;
+    /** Конвейер декодирования, выполнения и кодирования запросов. */
+    private RequestPipeline pipeline;
+    /** Потоки ввода-вывода, между которыми распределяются соединения. */
+    private Reactor[] reactors;
+    /** HTTP-точка метрик или null, если она отключена. */
+    private MetricsEndpoint metricsEndpoint;
+    /** Реактор, с которого начинается поиск наименее загруженного, чтобы при равенстве соединения шли по кругу. */
+    private int nextReactor = 0;
 
     /** Менеджер коллекции для управления данными. */
     private final CollectionManager collectionManager;
     /** Диспетчер команд для обработки запросов. */
     private final CommandDispatcher dispatcher;
+    /** Замер времени выполнения команд. */
+    private final CommandTimer commandTimer = new CommandTimer();
+    /** Ограничения допуска по типам команд, заданные свойствами server.commandLimit.ТИП. */
+    private final Map<CommandType, CommandLimiter> limiters = new EnumMap<>(CommandType.class);
     /** Канал сервера для принятия клиентских подключений. */
     private ServerSocketChannel serverChannel;
-    /** Селектор для управления событиями ввода-вывода. */
+    /** Селектор приёмника подключений. */
     private Selector selector;
     /** Флаг, указывающий, работает ли сервер. */
-    private boolean running = true;
+    private volatile boolean running = true;
     /** Флаг, указывающий на проблемы с соединением. */
     private boolean connectionProblem = true;
 
     /**
-     * Конструктор сервера, инициализирующий менеджер коллекции и диспетчер команд.
+     * Конструктор сервера, инициализирующий менеджер коллекции, диспетчер команд и его хуки.
      */
     public ServerApp() {
-        this.collectionManager = new CollectionManager();
+        this(new CollectionManager());
+    }
+
+    /**
+     * Конструктор сервера над заданным менеджером коллекции, например над заглушкой базы данных в нагрузочных тестах.
+     *
+     * @param collectionManager менеджер коллекции, коллекция загружается из него при запуске
+     */
+    public ServerApp(CollectionManager collectionManager) {
+        this.collectionManager = collectionManager;
         this.dispatcher = new CommandDispatcher(collectionManager);
+        dispatcher.addHook(commandTimer);
+        for (CommandType type : CommandType.values()) {
+            Integer limit = Integer.getInteger("server.commandLimit." + type.name());
+            if (limit != null && limit > 0) {
+                CommandLimiter limiter = new CommandLimiter(limit);
+                limiters.put(type, limiter);
+                dispatcher.addHook(limiter, type);
+            }
+        }
     }
 
     /**
@@ -84,39 +110,30 @@ public class ServerApp {
     }
 
     /**
-     * Основной цикл сервера, инициализирующий подключение и обрабатывающий события.
+     * Основной цикл сервера: принимает подключения и передаёт их реакторам.
      */
     public void run() {
         setupLogger();
         logger.info("Запуск сервера");
 
         try {
-            collectionManager.loadCollection(null);
+            collectionManager.loadCollection();
             connect();
+            startAdminConsole();
 
             while (running) {
                 try {
-                    int readyChannels = selector.select(500);
-                    if (readyChannels > 0) {
-                        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-                        while (keys.hasNext()) {
-                            SelectionKey key = keys.next();
-                            keys.remove();
-                            if (key.isAcceptable()) {
-                                acceptClient(key);
-                            } else if (key.isReadable()) {
-                                readRequest(key);
-                            } else if (key.isWritable()) {
-                                writeResponse(key);
-                            }
+                    selector.select(500);
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid() && key.isAcceptable()) {
+                            acceptClient(key);
                         }
                     }
-                    processConsoleInput();
-
                 } catch (IOException e) {
                     logger.severe("Ошибка сервера: " + e.getMessage());
-                } catch (ClassNotFoundException e) {
-                    logger.severe("Ошибка десериализации: " + e.getMessage());
                 }
             }
             closeResources();
@@ -128,7 +145,7 @@ public class ServerApp {
     }
 
     /**
-     * Инициализирует серверный канал и регистрирует его в селекторе.
+     * Инициализирует серверный канал, конвейер и реакторы.
      *
      * @throws IOException если не удается открыть канал или привязать порт
      */
@@ -138,168 +155,143 @@ public class ServerApp {
         serverChannel.bind(new InetSocketAddress(PORT));
         selector = Selector.open();
         serverChannel.register(selector, SelectionKey.OP_ACCEPT);
-        logger.info("Сервер запущен на порту " + PORT);
+        broadcaster = new ChangeBroadcaster(collectionManager, buffers, logger);
+        pipeline = new RequestPipeline(dispatcher, buffers, broadcaster, logger);
+
+        int count = Math.max(1, Integer.getInteger("server.reactors", Runtime.getRuntime().availableProcessors()));
+        reactors = new Reactor[count];
+        for (int i = 0; i < count; i++) {
+            reactors[i] = new Reactor("reactor-" + (i + 1), pipeline, buffers);
+            reactors[i].start();
+        }
+        pipeline.setCapacityListener(() -> {
+            for (Reactor reactor : reactors) {
+                reactor.wakeup();
+            }
+        });
+        broadcaster.start();
+        registerMetrics();
+        logger.info("Сервер запущен на порту " + PORT + ", реакторов: " + count);
         connectionProblem = false;
     }
 
     /**
-     * Принимает новое клиентское подключение и регистрирует его в селекторе.
-     *
-     * @param key ключ селектора для серверного канала
-     * @throws IOException если не удается принять подключение
+     * Регистрирует измеряемые по запросу метрики и запускает HTTP-точку метрик
+     * на 127.0.0.1 (порт — свойство server.metricsPort, по умолчанию 4900; 0 отключает).
      */
-    private void acceptClient(SelectionKey key) throws IOException {
-        ServerSocketChannel server = (ServerSocketChannel) key.channel();
-        SocketChannel clientChannel = server.accept();
-        if (clientChannel == null) {
-            logger.warning("Не удалось принять соединение");
+    private void registerMetrics() {
+        pipeline.registerMetrics();
+        Metrics.gauge("connections", () -> {
+            long total = 0;
+            for (Reactor reactor : reactors) {
+                total += reactor.getConnections();
+            }
+            return total;
+        });
+        Metrics.gauge("buffer_pool_outstanding", buffers::getOutstanding);
+        Metrics.gauge("push_subscribers", broadcaster::getSubscribers);
+        // Пул читается без создания: с заглушкой базы или до первого запроса его нет, и датчики показывают 0
+        Metrics.gauge("db_pool_active", () -> {
+            ConnectionPool pool = DataBaseManager.currentPool();
+            return pool != null ? pool.getActive() : 0;
+        });
+        Metrics.gauge("db_pool_idle", () -> {
+            ConnectionPool pool = DataBaseManager.currentPool();
+            return pool != null ? pool.getIdle() : 0;
+        });
+
+        int port = Integer.getInteger("server.metricsPort", 4900);
+        if (port <= 0) {
             return;
         }
-        clientChannel.configureBlocking(false);
-        SelectionKey clientKey = clientChannel.register(selector, SelectionKey.OP_READ);
-        clientKey.attach(new ClientState());
-        logger.info("Подключён клиент: " + getRemoteAddress(clientChannel));
+        try {
+            metricsEndpoint = new MetricsEndpoint(port);
+            metricsEndpoint.start();
+            logger.info("Метрики доступны по адресу http://127.0.0.1:" + metricsEndpoint.getPort() + "/metrics");
+        } catch (IOException e) {
+            logger.warning("Не удалось запустить HTTP-точку метрик: " + e.getMessage());
+        }
     }
 
     /**
-     * Читает запрос от клиента, десериализует его и передает в диспетчер.
+     * Принимает новое клиентское подключение и передаёт его наименее загруженному реактору.
      *
-     * @param key ключ селектора для клиентского канала
-     * @throws IOException если произошла ошибка чтения
-     * @throws ClassNotFoundException если не удалось десериализовать объект
+     * @param key ключ селектора для серверного канала
+     * @throws IOException если не удается принять подключение
      */
-    private void readRequest(SelectionKey key) throws IOException, ClassNotFoundException {
-        if (!key.isValid()) {
-            logger.warning("Чтение с невалидного ключа");
-            return;
-        }
-
-        SocketChannel clientChannel = (SocketChannel) key.channel();
-        ClientState state = (ClientState) key.attachment();
-        if (state == null) {
-            logger.severe("State не инициализирован для " + getRemoteAddress(clientChannel));
-            closeClient(clientChannel, key);
-            return;
-        }
-
-        ByteBuffer buffer = (state.dataBuffer != null ? state.dataBuffer : state.lengthBuffer);
-        int bytesRead = clientChannel.read(buffer);
-
-        if (bytesRead == -1) {
-            logger.info("Клиент отключился: " + getRemoteAddress(clientChannel));
-            closeClient(clientChannel, key);
-            return;
-        }
-
-        if (buffer.hasRemaining()) {
-            logger.fine("Частичное чтение от " + getRemoteAddress(clientChannel));
-            return;
+    private void acceptClient(SelectionKey key) throws IOException {
+        ServerSocketChannel server = (ServerSocketChannel) key.channel();
+        SocketChannel clientChannel;
+        while ((clientChannel = server.accept()) != null) {
+            logger.info("Подключён клиент: " + getRemoteAddress(clientChannel));
+            chooseReactor().register(clientChannel);
         }
+    }
 
-        if (state.dataBuffer == null) {
-            state.lengthBuffer.flip();
-            state.dataLength = state.lengthBuffer.getInt();
-            state.lengthBuffer.clear();
-            if (state.dataLength <= 0 || state.dataLength > MAX_DATA_LENGTH) {
-                logger.warning("Неверный размер данных: " + state.dataLength);
-                closeClient(clientChannel, key);
-                return;
+    private Reactor chooseReactor() {
+        Reactor best = reactors[nextReactor];
+        for (int i = 1; i < reactors.length; i++) {
+            Reactor candidate = reactors[(nextReactor + i) % reactors.length];
+            if (candidate.getConnections() < best.getConnections()) {
+                best = candidate;
             }
-            state.dataBuffer = ByteBuffer.allocate(state.dataLength);
-            logger.info("Ожидаем данные длиной " + state.dataLength + " от " + getRemoteAddress(clientChannel));
-        } else {
-            state.dataBuffer.flip();
-            byte[] bytes = new byte[state.dataLength];
-            state.dataBuffer.get(bytes);
-            state.dataBuffer = null;
-            state.dataLength = -1;
-
-            Runnable readTask = () -> {
-                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
-                    Object obj = ois.readObject();
-                    if (!(obj instanceof Request request)) {
-                        logger.warning("Некорректный объект от клиента " + getRemoteAddress(clientChannel));
-                        key.attach(new Response(ResponseStatus.ERROR, "Неверный запрос"));
-                        key.interestOps(SelectionKey.OP_WRITE);
-                        return;
-                    }
-
-                    logger.info("Запрос " + request.getType() + " от " + getRemoteAddress(clientChannel) +
-                            " в потоке " + Thread.currentThread().getId());
-
-                    Callable<Response> commandTask = () -> {
-                        logger.info("Обработка команды " + request.getType() + " в потоке " +
-                                Thread.currentThread().getId());
-                        try {
-                            Response response = dispatcher.dispatch(request);
-                            logger.info("Команда " + request.getType() + " успешно обработана");
-                            return response;
-                        } catch (Exception e) {
-                            logger.severe("Ошибка обработки команды " + request.getType() + ": " + e.getMessage());
-                            return new Response(ResponseStatus.ERROR, "Ошибка обработки: " + e.getMessage());
-                        }
-                    };
-
-                    Future<Response> future = commandPool.submit(commandTask);
-                    Response response = future.get();
-
-                    key.attach(response);
-                    key.interestOps(SelectionKey.OP_WRITE);
-                } catch (Exception e) {
-                    logger.warning("Ошибка десериализации или обработки запроса: " + e.getMessage());
-                    key.attach(new Response(ResponseStatus.ERROR, "Ошибка обработки данных: " + e.getMessage()));
-                    key.interestOps(SelectionKey.OP_WRITE);
-                }
-            };
-
-            new Thread(readTask).start();
         }
+        nextReactor = (nextReactor + 1) % reactors.length;
+        return best;
     }
 
     /**
-     * Синхронно отправляет ответ клиенту используя ForkJoinPool {@link WriteThread}, сериализуя объект {@link Response}.
-     *
-     * @throws IOException если произошла ошибка записи
+     * Запускает поток консоли администратора, чтобы циклы ввода-вывода не опрашивали System.in.
      */
-    private void writeResponse(SelectionKey key) throws IOException {
-        if (!key.isValid()) {
-            logger.warning("Запись в невалидный ключ");
-            return;
-        }
-
-        SocketChannel clientChannel = (SocketChannel) key.channel();
-        Object attachment = key.attachment();
-        if (!(attachment instanceof Response response)) {
-            logger.warning("Нет ответа для клиента");
-            closeClient(clientChannel, key);
-            return;
-        }
-        WriteThread writeThread = new WriteThread(clientChannel, logger, key, response);
-        writePool.invoke(writeThread);
+    private void startAdminConsole() {
+        Thread console = new Thread(() -> {
+            Scanner scanner = new Scanner(System.in);
+            while (running && scanner.hasNextLine()) {
+                processConsoleInput(scanner.nextLine().trim());
+            }
+        }, "admin-console");
+        console.setDaemon(true);
+        console.start();
     }
 
     /**
-     * Обрабатывает консольный ввод для админ-команд (например, "exit").
+     * Выполняет админ-команду: "exit", "pool" — статистика пула соединений,
+     * "reactors" — число соединений каждого реактора, "buffers" — статистика пула буферов,
+     * "push" — статистика рассылки изменений, "commands" — время выполнения и ограничения команд,
+     * "metrics" — все метрики сервера.
      */
-    private void processConsoleInput() {
-        try {
-            Scanner scanner = new Scanner(System.in);
-            if (System.in.available() > 0) {
-                System.out.print("[server-admin] $ ");
-                String line = scanner.nextLine().trim();
-                if (line.equalsIgnoreCase("exit")) {
-                    logger.info("Завершаем работу сервера");
-                    closeResources();
-                    running = false;
-                }
+    private void processConsoleInput(String line) {
+        if (line.equalsIgnoreCase("exit")) {
+            logger.info("Завершаем работу сервера");
+            running = false;
+            selector.wakeup();
+        }
+        if (line.equalsIgnoreCase("pool")) {
+            System.out.println(DataBaseManager.getPool().stats());
+        }
+        if (line.equalsIgnoreCase("buffers")) {
+            System.out.println(buffers.stats());
+        }
+        if (line.equalsIgnoreCase("commands")) {
+            System.out.println(commandTimer.stats());
+            limiters.forEach((type, limiter) -> System.out.println("Ограничение " + type + ": " + limiter.stats()));
+        }
+        if (line.equalsIgnoreCase("metrics")) {
+            System.out.print(Metrics.render());
+        }
+        if (line.equalsIgnoreCase("push")) {
+            System.out.println(broadcaster.stats());
+        }
+        if (line.equalsIgnoreCase("reactors")) {
+            for (Reactor reactor : reactors) {
+                System.out.println(reactor.getName() + ": соединений " + reactor.getConnections());
             }
-        } catch (IOException e) {
-            logger.warning("Ошибка чтения админ-команды: " + e.getMessage());
         }
+        System.out.print("[server-admin] $ ");
     }
 
     /**
-     * Закрывает серверный канал, селектор и пулы потоков.
+     * Закрывает серверный канал, селектор, реакторы и пулы потоков.
      */
     private void closeResources() {
         try {
@@ -309,28 +301,21 @@ public class ServerApp {
             if (selector != null && selector.isOpen()) {
                 selector.close();
             }
-            commandPool.shutdown();
-            try {
-                if (!commandPool.awaitTermination(5, TimeUnit.SECONDS)) {
-                    commandPool.shutdownNow();
-                    logger.warning("Принудительное завершение commandPool");
-                }
-            } catch (InterruptedException e) {
-                commandPool.shutdownNow();
-                Thread.currentThread().interrupt();
-                logger.severe("Прерывание при завершении commandPool: " + e.getMessage());
+            if (broadcaster != null) {
+                broadcaster.shutdown();
+            }
+            if (metricsEndpoint != null) {
+                metricsEndpoint.stop();
             }
-            writePool.shutdown();
-            try {
-                if (!writePool.awaitTermination(5, TimeUnit.SECONDS)) {
-                    writePool.shutdownNow();
-                    logger.warning("Принудительное завершение writePool");
+            if (reactors != null) {
+                for (Reactor reactor : reactors) {
+                    reactor.shutdown();
                 }
-            } catch (InterruptedException e) {
-                writePool.shutdownNow();
-                Thread.currentThread().interrupt();
-                logger.severe("Прерывание при завершении writePool: " + e.getMessage());
             }
+            if (pipeline != null) {
+                pipeline.shutdown();
+            }
+            DataBaseManager.shutdown();
         } catch (IOException e) {
             logger.severe("Ошибка при закрытии ресурсов: " + e.getMessage());
         }
@@ -353,33 +338,16 @@ public class ServerApp {
     }
 
     /**
-     * Настраивает логгер для записи в файл и вывода в консоль.
+     * Настраивает логгер для записи в файл и вывода в консоль через асинхронный обработчик {@link LogSetup}.
      */
     private void setupLogger() {
         try {
-            for (Handler handler : logger.getHandlers()) {
-                if (handler instanceof FileHandler) {
-                    return;
-                }
-            }
             Path logDir = Paths.get("logs");
             if (!Files.exists(logDir)) {
                 Files.createDirectories(logDir);
             }
 
-            String logFile = logDir.resolve("server.log").toString();
-            FileHandler fileHandler = new FileHandler(logFile, true);
-            fileHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(fileHandler);
-
-
-            ConsoleHandler consoleHandler = new ConsoleHandler();
-            consoleHandler.setFormatter(new ColorFormatter());
-            logger.addHandler(consoleHandler);
-
-
-            logger.setLevel(Level.ALL);
-            logger.setUseParentHandlers(false);
+            LogSetup.install(logger, logDir.resolve("server.log").toString(), new ColorFormatter());
         } catch (IOException e) {
             logger.severe("Ошибка настройки логирования сервера: " + e.getMessage());
         }
@@ -399,4 +367,11 @@ public class ServerApp {
             return "unknown";
         }
     }
+
+    /**
+     * Возвращает адрес удаленного клиента по ключу селектора.
+     */
+    static String getRemoteAddress(SelectionKey key) {
+        return getRemoteAddress((SocketChannel) key.channel());
+    }
 }
\ No newline at end of file
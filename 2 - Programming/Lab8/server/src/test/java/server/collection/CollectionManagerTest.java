@@ -0,0 +1,76 @@
+package server.collection;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.dataBase.DataBaseManager;
+import shared.model.Coordinates;
+import shared.model.Location;
+import shared.model.Person;
+import shared.model.enums.Color;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Команды чтения гостя (user_login == null) работают с общей коллекцией, пользователя — с его объектами.
+ */
+class CollectionManagerTest {
+    private CollectionManager cm;
+
+    @BeforeEach
+    void setUp() {
+        List<Person> people = List.of(person(1, "alice", 170), person(2, "bob", 190), person(3, "alice", 180));
+        cm = new CollectionManager(new DataBaseManager() {
+            @Override
+            public int streamPeople(String user_login, Consumer<Person> sink) {
+                people.forEach(sink);
+                return people.size();
+            }
+
+            @Override
+            public int[] removePersons(List<Long> ids, String login) {
+                return ids.stream().mapToInt(id -> people.stream()
+                        .anyMatch(p -> p.getId() == id && p.getUserLogin().equals(login)) ? 1 : 0).toArray();
+            }
+        });
+        cm.loadCollection();
+    }
+
+    private static Person person(long id, String owner, int height) {
+        Person person = new Person("Person " + id, new Coordinates(1L, 2.0), height, 70,
+                "P" + (100000 + id), Color.values()[0], new Location(1.0, 2.0f, 3), owner);
+        person.setId(id);
+        return person;
+    }
+
+    @Test
+    void guestHeadIsFirstOfWholeCollection() {
+        assertTrue(cm.head(null).startsWith("Person{id=1,"));
+        assertTrue(cm.head("bob").startsWith("Person{id=2,"));
+    }
+
+    @Test
+    void guestAverageOfHeightCoversWholeCollection() {
+        assertEquals("180.0", cm.averageOfHeight(null));
+        assertEquals("175.0", cm.averageOfHeight("alice"));
+        assertEquals("190.0", cm.averageOfHeight("bob"));
+    }
+
+    @Test
+    void removeAllDeletesOnlyOwnObjects() {
+        assertEquals("NoSuchPerson", cm.removeAll(List.of(1L, 2L), "alice"));
+        assertEquals("180.0", cm.averageOfHeight("alice"));
+        assertEquals("190.0", cm.averageOfHeight("bob"));
+        assertEquals("Deleted", cm.removeAll(List.of(3L), "alice"));
+        assertEquals("EmptyCollection", cm.head("alice"));
+    }
+
+    @Test
+    void ownerWithoutObjectsSeesEmptyCollection() {
+        assertEquals("EmptyCollection", cm.head("carol"));
+        assertEquals("EmptyCollection", cm.averageOfHeight("carol"));
+    }
+}
@@ -0,0 +1,622 @@
+package shared.codec;
+
+import shared.dto.ChangeEvent;
+import shared.dto.CommandType;
+import shared.dto.Request;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+import shared.dto.User;
+import shared.model.Coordinates;
+import shared.model.Info;
+import shared.model.Location;
+import shared.model.Person;
+import shared.model.enums.Color;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Компактный двоичный формат запросов и ответов, версия {@link #VERSION}.
+ * Вместо описаний классов сериализации Java пишутся только значения полей:
+ * целые — переменной длины (zigzag, 7 бит на байт), строки — длина и UTF-8,
+ * перечисления — порядковый номер, необязательные поля ответа — битовая маска присутствия.
+ * Пустые служебные списки ответа не передаются вовсе. Кадр собирается в массиве и отдаётся потоку
+ * одной записью, а читается целиком одним вызовом: побайтовые вызовы синхронизированных потоков
+ * стоили бы больше самого разбора.
+ * <p>
+ * Аргументы запроса передаются с тегом типа; поддерживаются типы, которые реально отправляет клиент:
+ * String, Long, Integer, Boolean, Person, Person[], long[] и User.
+ * При изменении формата увеличивается {@link #VERSION}, и старая версия согласуется в {@link Handshake}.
+ */
+public final class BinaryCodec implements WireCodec {
+    public static final int VERSION = 3;
+    public static final BinaryCodec INSTANCE = new BinaryCodec();
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_LONG = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_BOOLEAN = 4;
+    private static final int TAG_PERSON = 5;
+    private static final int TAG_PERSON_ARRAY = 6;
+    private static final int TAG_USER = 7;
+    private static final int TAG_LONG_ARRAY = 8;
+
+    private static final int HAS_STATUS = 1;
+    private static final int HAS_TYPE = 1 << 1;
+    private static final int HAS_MESSAGE = 1 << 2;
+    private static final int HAS_INFO = 1 << 3;
+    private static final int HAS_USER = 1 << 4;
+    private static final int HAS_PEOPLE = 1 << 5;
+    private static final int HAS_DESK = 1 << 6;
+    private static final int HAS_DATA = 1 << 7;
+    private static final int HAS_CHANGES = 1 << 8;
+
+    private static final int HAS_COORDINATES = 1;
+    private static final int HAS_LOCATION = 1 << 1;
+    private static final int HAS_Z = 1 << 2;
+
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+    private static final ResponseStatus[] STATUSES = ResponseStatus.values();
+    private static final Color[] COLORS = Color.values();
+    private static final ChangeEvent.Kind[] CHANGE_KINDS = ChangeEvent.Kind.values();
+
+    private BinaryCodec() {
+    }
+
+    @Override
+    public String name() {
+        return "binary-v" + VERSION;
+    }
+
+    @Override
+    public void writeRequest(Request request, OutputStream stream) throws IOException {
+        Output out = new Output();
+        writeVarLong(out, request.getRequestId());
+        writeEnum(out, request.getType());
+        writeVarLong(out, request.getKnownVersion());
+        Object[] args = (Object[]) request.getArgs();
+        if (args == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, args.length + 1);
+            for (Object arg : args) {
+                writeValue(out, arg);
+            }
+        }
+        out.writeTo(stream);
+    }
+
+    /**
+     * @throws MalformedRequestException если номер запроса прочитан, а остальной кадр разобрать не удалось
+     */
+    @Override
+    public Request readRequest(InputStream stream) throws IOException {
+        Input in = new Input(stream.readAllBytes());
+        long requestId = readVarLong(in);
+        try {
+            CommandType type = readEnum(in, COMMAND_TYPES);
+            long knownVersion = readVarLong(in);
+            int count = readVarInt(in) - 1;
+            Object[] args = null;
+            if (count >= 0) {
+                requireCount(in, count);
+                args = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    args[i] = readValue(in);
+                }
+            }
+            Request request = new Request(type, args);
+            request.setRequestId(requestId);
+            request.setKnownVersion(knownVersion);
+            return request;
+        } catch (IOException e) {
+            throw new MalformedRequestException(requestId, e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void writeResponse(Response response, OutputStream stream) throws IOException {
+        Output out = new Output();
+        LinkedList<Person> people = response.getPersons();
+        ArrayList<String> desk = response.getCommandCollection();
+        ArrayList<ChangeEvent> changes = response.getChanges();
+        int mask = 0;
+        if (response.getStatus() != null) mask |= HAS_STATUS;
+        if (response.getType() != null) mask |= HAS_TYPE;
+        if (response.getMessage() != null) mask |= HAS_MESSAGE;
+        if (response.getInfo() != null) mask |= HAS_INFO;
+        if (response.getUser() != null) mask |= HAS_USER;
+        if (people != null) mask |= HAS_PEOPLE;
+        if (desk != null && !desk.isEmpty()) mask |= HAS_DESK;
+        if (response.getData() != null) mask |= HAS_DATA;
+        if (changes != null) mask |= HAS_CHANGES;
+
+        writeVarLong(out, response.getRequestId());
+        writeVarInt(out, mask);
+        writeVarLong(out, response.getVersion());
+        if ((mask & HAS_STATUS) != 0) writeEnum(out, response.getStatus());
+        if ((mask & HAS_TYPE) != 0) writeEnum(out, response.getType());
+        if ((mask & HAS_MESSAGE) != 0) writeString(out, response.getMessage());
+        if ((mask & HAS_INFO) != 0) writeInfo(out, response.getInfo());
+        if ((mask & HAS_USER) != 0) writeUser(out, response.getUser());
+        if ((mask & HAS_PEOPLE) != 0) {
+            writeVarInt(out, people.size());
+            for (Person person : people) {
+                writePerson(out, person);
+            }
+        }
+        if ((mask & HAS_DESK) != 0) {
+            writeVarInt(out, desk.size());
+            for (String line : desk) {
+                writeString(out, line);
+            }
+        }
+        if ((mask & HAS_DATA) != 0) writeValue(out, response.getData());
+        if ((mask & HAS_CHANGES) != 0) {
+            writeVarInt(out, changes.size());
+            for (ChangeEvent change : changes) {
+                writeChange(out, change);
+            }
+        }
+        out.writeTo(stream);
+    }
+
+    @Override
+    public Response readResponse(InputStream stream) throws IOException {
+        Input in = new Input(stream.readAllBytes());
+        Response response = new Response();
+        response.setRequestId(readVarLong(in));
+        int mask = readVarInt(in);
+        response.setVersion(readVarLong(in));
+        if ((mask & HAS_STATUS) != 0) response.setStatus(readEnum(in, STATUSES));
+        if ((mask & HAS_TYPE) != 0) response.setType(readEnum(in, COMMAND_TYPES));
+        if ((mask & HAS_MESSAGE) != 0) response.setMessage(readString(in));
+        if ((mask & HAS_INFO) != 0) response.setInfo(readInfo(in));
+        if ((mask & HAS_USER) != 0) response.setUser(readUser(in));
+        if ((mask & HAS_PEOPLE) != 0) {
+            int count = readCount(in);
+            LinkedList<Person> people = new LinkedList<>();
+            for (int i = 0; i < count; i++) {
+                people.add(readPerson(in));
+            }
+            response.setPersons(people);
+        }
+        if ((mask & HAS_DESK) != 0) {
+            int count = readCount(in);
+            ArrayList<String> desk = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                desk.add(readString(in));
+            }
+            response.setCommandCollection(desk);
+        }
+        if ((mask & HAS_DATA) != 0) response.setData(readValue(in));
+        if ((mask & HAS_CHANGES) != 0) {
+            int count = readCount(in);
+            ArrayList<ChangeEvent> changes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                changes.add(readChange(in));
+            }
+            response.setChanges(changes);
+        }
+        return response;
+    }
+
+    /* ---------- Модель ---------- */
+
+    private static void writePerson(Output out, Person person) {
+        Coordinates coordinates = person.getCoordinates();
+        Location location = person.getLocation();
+        int flags = 0;
+        if (coordinates != null) flags |= HAS_COORDINATES;
+        if (location != null) flags |= HAS_LOCATION;
+        if (location != null && location.getZ() != null) flags |= HAS_Z;
+
+        writeVarLong(out, person.getId());
+        writeString(out, person.getName());
+        writeVarLong(out, person.getHeight());
+        writeVarLong(out, person.getWeight());
+        writeString(out, person.getPassportID());
+        out.writeByte(person.getEyeColor() == null ? 0 : person.getEyeColor().ordinal() + 1);
+        writeString(out, person.getUserLogin());
+        out.writeByte(flags);
+        if (coordinates != null) {
+            writeVarLong(out, coordinates.getX());
+            out.writeDouble(coordinates.getY());
+        }
+        if (location != null) {
+            out.writeDouble(location.getX());
+            out.writeFloat(location.getY());
+            if (location.getZ() != null) {
+                writeVarLong(out, location.getZ());
+            }
+        }
+    }
+
+    /**
+     * Собирает Person через его сеттеры, поэтому объект проходит те же проверки, что и при создании на клиенте:
+     * сеттер вызывается для каждого поля, в том числе для отсутствующих в кадре полей,
+     * и отказ сеттера превращается в {@link IOException}.
+     */
+    private static Person readPerson(Input in) throws IOException {
+        Person person = new Person();
+        try {
+            person.setId(readVarLong(in));
+            person.setName(readString(in));
+            person.setHeight((int) readVarLong(in));
+            person.setWeight(readVarLong(in));
+            person.setPassportID(readString(in));
+            int color = in.readUnsignedByte();
+            person.setEyeColor(color == 0 ? null : readOrdinal(color - 1, COLORS));
+            person.setUser_login(readString(in));
+            int flags = in.readUnsignedByte();
+            Coordinates coordinates = null;
+            if ((flags & HAS_COORDINATES) != 0) {
+                coordinates = new Coordinates();
+                coordinates.setX(readVarLong(in));
+                coordinates.setY(in.readDouble());
+            }
+            person.setCoordinates(coordinates);
+            Location location = null;
+            if ((flags & HAS_LOCATION) != 0) {
+                location = new Location();
+                location.setX(in.readDouble());
+                location.setY(in.readFloat());
+                Integer z = (flags & HAS_Z) != 0 ? (int) readVarLong(in) : null;
+                location.setZ(z);
+            }
+            person.setLocation(location);
+        } catch (RuntimeException e) {
+            throw new IOException("Некорректный объект Person: " + e.getMessage(), e);
+        }
+        return person;
+    }
+
+    private static void writeChange(Output out, ChangeEvent change) {
+        writeVarLong(out, change.getVersion());
+        writeEnum(out, change.getKind());
+        writeVarLong(out, change.getId());
+        if (change.getKind() != ChangeEvent.Kind.REMOVED) {
+            writePerson(out, change.getPerson());
+        }
+    }
+
+    private static ChangeEvent readChange(Input in) throws IOException {
+        long version = readVarLong(in);
+        ChangeEvent.Kind kind = readEnum(in, CHANGE_KINDS);
+        long id = readVarLong(in);
+        Person person = kind != ChangeEvent.Kind.REMOVED ? readPerson(in) : null;
+        return new ChangeEvent(version, kind, id, person);
+    }
+
+    private static void writeInfo(Output out, Info info) {
+        writeVarLong(out, info.getNumberOfPersons());
+        writeString(out, info.getType());
+        writeVarLong(out, info.getYourPersons());
+        LocalDateTime date = info.getDateOfInit();
+        out.writeBoolean(date != null);
+        if (date != null) {
+            writeVarLong(out, date.toLocalDate().toEpochDay());
+            writeVarLong(out, date.toLocalTime().toNanoOfDay());
+        }
+    }
+
+    private static Info readInfo(Input in) throws IOException {
+        int numberOfPersons = (int) readVarLong(in);
+        String type = readString(in);
+        long yourPersons = readVarLong(in);
+        LocalDateTime date = null;
+        if (in.readBoolean()) {
+            date = LocalDateTime.of(LocalDate.ofEpochDay(readVarLong(in)), LocalTime.ofNanoOfDay(readVarLong(in)));
+        }
+        return new Info(numberOfPersons, type, date, yourPersons);
+    }
+
+    private static void writeUser(Output out, User user) {
+        writeString(out, user.getLogin());
+        writeString(out, user.getPassword());
+    }
+
+    private static User readUser(Input in) throws IOException {
+        return new User(readString(in), readString(in));
+    }
+
+    /* ---------- Значения с тегом типа ---------- */
+
+    private static void writeValue(Output out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String s) {
+            out.writeByte(TAG_STRING);
+            writeString(out, s);
+        } else if (value instanceof Long l) {
+            out.writeByte(TAG_LONG);
+            writeVarLong(out, l);
+        } else if (value instanceof Integer i) {
+            out.writeByte(TAG_INT);
+            writeVarLong(out, i);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean(b);
+        } else if (value instanceof Person p) {
+            out.writeByte(TAG_PERSON);
+            writePerson(out, p);
+        } else if (value instanceof Person[] persons) {
+            out.writeByte(TAG_PERSON_ARRAY);
+            writeVarInt(out, persons.length);
+            for (Person p : persons) {
+                writePerson(out, p);
+            }
+        } else if (value instanceof User u) {
+            out.writeByte(TAG_USER);
+            writeUser(out, u);
+        } else if (value instanceof long[] longs) {
+            out.writeByte(TAG_LONG_ARRAY);
+            writeVarInt(out, longs.length);
+            for (long l : longs) {
+                writeVarLong(out, l);
+            }
+        } else {
+            throw new IOException("Тип не поддерживается двоичным протоколом: " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(Input in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(in);
+            case TAG_LONG:
+                return readVarLong(in);
+            case TAG_INT:
+                return (int) readVarLong(in);
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_PERSON:
+                return readPerson(in);
+            case TAG_PERSON_ARRAY:
+                Person[] persons = new Person[readCount(in)];
+                for (int i = 0; i < persons.length; i++) {
+                    persons[i] = readPerson(in);
+                }
+                return persons;
+            case TAG_USER:
+                return readUser(in);
+            case TAG_LONG_ARRAY:
+                long[] longs = new long[readCount(in)];
+                for (int i = 0; i < longs.length; i++) {
+                    longs[i] = readVarLong(in);
+                }
+                return longs;
+            default:
+                throw new IOException("Неизвестный тег значения: " + tag);
+        }
+    }
+
+    /* ---------- Примитивы ---------- */
+
+    private static void writeEnum(Output out, Enum<?> value) {
+        writeVarInt(out, value == null ? 0 : value.ordinal() + 1);
+    }
+
+    private static <E extends Enum<E>> E readEnum(Input in, E[] values) throws IOException {
+        int ordinal = readVarInt(in);
+        return ordinal == 0 ? null : readOrdinal(ordinal - 1, values);
+    }
+
+    private static <E extends Enum<E>> E readOrdinal(int ordinal, E[] values) throws IOException {
+        if (ordinal >= values.length) {
+            throw new IOException("Неизвестное значение " + values[0].getDeclaringClass().getSimpleName() + ": " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * Буфер записи кадра без синхронизации.
+     */
+    private static final class Output {
+        private byte[] bytes = new byte[256];
+        private int size = 0;
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        void writeLongBits(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeDouble(double value) {
+            writeLongBits(Double.doubleToLongBits(value));
+        }
+
+        void writeFloat(float value) {
+            int bits = Float.floatToIntBits(value);
+            ensure(4);
+            bytes[size++] = (byte) (bits >>> 24);
+            bytes[size++] = (byte) (bits >>> 16);
+            bytes[size++] = (byte) (bits >>> 8);
+            bytes[size++] = (byte) bits;
+        }
+
+        void write(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        void writeTo(OutputStream stream) throws IOException {
+            stream.write(bytes, 0, size);
+            stream.flush();
+        }
+    }
+
+    /**
+     * Курсор чтения по телу кадра.
+     */
+    private static final class Input {
+        private final byte[] bytes;
+        private int position = 0;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        /** @return сколько байт кадра ещё не прочитано */
+        int remaining() {
+            return bytes.length - position;
+        }
+
+        private void require(int count) throws IOException {
+            if (count < 0 || count > bytes.length - position) {
+                throw new EOFException("Кадр закончился раньше ожидаемого");
+            }
+        }
+
+        int readUnsignedByte() throws IOException {
+            require(1);
+            return bytes[position++] & 0xFF;
+        }
+
+        boolean readBoolean() throws IOException {
+            return readUnsignedByte() != 0;
+        }
+
+        long readLongBits() throws IOException {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        double readDouble() throws IOException {
+            return Double.longBitsToDouble(readLongBits());
+        }
+
+        float readFloat() throws IOException {
+            require(4);
+            int bits = (bytes[position] & 0xFF) << 24 | (bytes[position + 1] & 0xFF) << 16
+                    | (bytes[position + 2] & 0xFF) << 8 | (bytes[position + 3] & 0xFF);
+            position += 4;
+            return Float.intBitsToFloat(bits);
+        }
+
+        String readUtf8(int length) throws IOException {
+            require(length);
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+
+    /**
+     * Строка: длина в байтах плюс один (0 — null), затем UTF-8.
+     */
+    private static void writeString(Output out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(Input in) throws IOException {
+        int length = readVarInt(in) - 1;
+        return length < 0 ? null : in.readUtf8(length);
+    }
+
+    /**
+     * Читает число элементов последовательности. Каждый элемент занимает хотя бы байт, поэтому число,
+     * большее остатка кадра, означает повреждённый или враждебный кадр: отказ до выделения памяти под него.
+     */
+    private static int readCount(Input in) throws IOException {
+        int count = readVarInt(in);
+        requireCount(in, count);
+        return count;
+    }
+
+    private static void requireCount(Input in, int count) throws IOException {
+        if (count < 0 || count > in.remaining()) {
+            throw new IOException("Недопустимое число элементов: " + count + ", в кадре осталось " + in.remaining() + " байт");
+        }
+    }
+
+    /**
+     * Неотрицательное целое переменной длины: по 7 бит в байте, старший бит — признак продолжения.
+     */
+    private static void writeVarInt(Output out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(Input in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Некорректная длина: " + value);
+                }
+                return value;
+            }
+        }
+        throw new IOException("Слишком длинное целое переменной длины");
+    }
+
+    /**
+     * Знаковое целое переменной длины в кодировке zigzag: малые по модулю значения занимают один байт.
+     */
+    private static void writeVarLong(Output out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(Input in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Слишком длинное целое переменной длины");
+    }
+}
@@ -0,0 +1,212 @@
+package shared.codec;
+
+import shared.dto.ChangeEvent;
+import shared.dto.CommandType;
+import shared.dto.Request;
+import shared.dto.Response;
+import shared.dto.ResponseStatus;
+import shared.model.Coordinates;
+import shared.model.Location;
+import shared.model.Person;
+import shared.model.enums.Color;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие кадров поверх другого кодека, согласуется флагом {@link Handshake#FLAG_DEFLATE}.
+ * Тело кадра начинается с байта-признака: {@link #RAW} — дальше тело внутреннего кодека как есть,
+ * {@link #DEFLATED} — длина несжатого тела (4 байта) и поток Deflate.
+ * Сжимаются только тела не короче {@link #THRESHOLD} байт и только если сжатие их укорачивает.
+ * <p>
+ * Deflate сжимается с заранее известным словарём: типичным ответом внутреннего кодека (описания классов
+ * сериализации, имена полей, Person.toString()), поэтому и кадры средней длины сжимаются с первого байта.
+ * Словарь строится одинаково на клиенте и сервере из одних и тех же классов; несовпадение словарей
+ * Inflater обнаружит по контрольной сумме, и кадр не будет прочитан.
+ */
+public final class DeflateCodec implements WireCodec {
+    /** Признак несжатого тела. */
+    static final int RAW = 0;
+    /** Признак сжатого тела. */
+    static final int DEFLATED = 1;
+    /** Тела короче этой длины не сжимаются: выигрыш меньше затрат. */
+    public static final int THRESHOLD = 1024;
+    /** Наибольшая длина несжатого тела, которую согласен восстановить читатель. */
+    public static final int MAX_INFLATED_LENGTH = 16 * 1024 * 1024;
+
+    private static final Map<WireCodec, DeflateCodec> INSTANCES = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private final WireCodec inner;
+    private final byte[] dictionary;
+
+    private DeflateCodec(WireCodec inner) {
+        this.inner = inner;
+        this.dictionary = dictionary(inner);
+    }
+
+    /**
+     * @param inner кодек, тела которого сжимаются
+     * @return общий экземпляр для этого кодека; словарь строится один раз
+     */
+    public static DeflateCodec over(WireCodec inner) {
+        return INSTANCES.computeIfAbsent(inner, DeflateCodec::new);
+    }
+
+    @Override
+    public String name() {
+        return inner.name() + "+deflate";
+    }
+
+    @Override
+    public void writeRequest(Request request, OutputStream out) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        inner.writeRequest(request, body);
+        write(body, out);
+    }
+
+    @Override
+    public Request readRequest(InputStream in) throws IOException {
+        return inner.readRequest(read(in));
+    }
+
+    @Override
+    public void writeResponse(Response response, OutputStream out) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        inner.writeResponse(response, body);
+        write(body, out);
+    }
+
+    @Override
+    public Response readResponse(InputStream in) throws IOException {
+        return inner.readResponse(read(in));
+    }
+
+    private void write(ByteArrayOutputStream body, OutputStream out) throws IOException {
+        int length = body.size();
+        if (length >= THRESHOLD) {
+            byte[] compressed = deflate(body.toByteArray());
+            if (compressed != null) {
+                DataOutputStream data = new DataOutputStream(out);
+                data.writeByte(DEFLATED);
+                data.writeInt(length);
+                data.write(compressed);
+                data.flush();
+                return;
+            }
+        }
+        out.write(RAW);
+        body.writeTo(out);
+    }
+
+    /**
+     * @return сжатое тело или null, если оно получилось не короче исходного
+     */
+    private byte[] deflate(byte[] body) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setDictionary(dictionary);
+        deflater.setInput(body);
+        deflater.finish();
+        byte[] out = new byte[body.length - 5];
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == out.length) {
+                return null;
+            }
+            size += deflater.deflate(out, size, out.length - size);
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    private InputStream read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int marker = data.read();
+        if (marker == RAW) {
+            return in;
+        }
+        if (marker != DEFLATED) {
+            throw new IOException("Неизвестный признак сжатия кадра: " + marker);
+        }
+        int length = data.readInt();
+        if (length < 0 || length > MAX_INFLATED_LENGTH) {
+            throw new IOException("Недопустимая длина несжатого кадра: " + length);
+        }
+        return new ByteArrayInputStream(inflate(data.readAllBytes(), length));
+    }
+
+    private byte[] inflate(byte[] compressed, int length) throws IOException {
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] out = new byte[length];
+        int size = 0;
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(out, size, length - size);
+                size += n;
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(dictionary);
+                    } else {
+                        throw new IOException("Сжатый кадр повреждён или длиннее заявленного");
+                    }
+                }
+            }
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IOException("Ошибка распаковки кадра: " + e.getMessage(), e);
+        }
+        if (size != length) {
+            throw new IOException("Длина распакованного кадра " + size + " вместо " + length);
+        }
+        return out;
+    }
+
+    /**
+     * Строит словарь: текст вывода show и тело типичного ответа REFRESH с изменениями во внутреннем кодеке.
+     * Deflate лучше находит совпадения ближе к концу словаря, поэтому ответ кодека идёт последним.
+     */
+    private static byte[] dictionary(WireCodec inner) {
+        LinkedList<Person> people = new LinkedList<>();
+        ArrayList<ChangeEvent> changes = new ArrayList<>();
+        Color[] colors = Color.values();
+        for (int i = 0; i < colors.length; i++) {
+            Person person = new Person("Person " + i, new Coordinates(i, i + 0.5), 170 + i, 70 + i,
+                    "P10000" + i, colors[i], new Location(i + 0.25, i + 0.5f, i), "user" + i);
+            person.setId(i + 1);
+            people.add(person);
+            changes.add(new ChangeEvent(i + 1, ChangeEvent.Kind.values()[i % ChangeEvent.Kind.values().length],
+                    person.getId(), person));
+        }
+        StringBuilder show = new StringBuilder();
+        for (Person person : people) {
+            show.append(person).append('\n');
+        }
+        Response refresh = new Response(ResponseStatus.REFRESH, "Объект успешно добавлен", CommandType.ADD, people);
+        refresh.setChanges(changes);
+        refresh.setVersion(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        try {
+            out.write(show.toString().getBytes(StandardCharsets.UTF_8));
+            inner.writeResponse(refresh, out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось построить словарь сжатия для " + inner.name(), e);
+        }
+        return out.toByteArray();
+    }
+}
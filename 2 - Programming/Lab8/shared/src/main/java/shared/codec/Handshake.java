@@ -0,0 +1,84 @@
+package shared.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Согласование кодека при подключении.
+ * Клиент, которому нужен двоичный протокол, первым кадром отправляет приветствие:
+ * магическое число и желаемую версию {@link BinaryCodec}. Сервер отвечает таким же кадром
+ * с принятой версией или 0, если остаётся сериализация Java. До ответа клиент запросов не шлёт.
+ * Кадр сериализации Java всегда начинается с 0xACED, поэтому приветствие с ним не спутать,
+ * а клиент, не отправивший приветствия, работает как раньше.
+ * <p>
+ * Младшие биты байта версии ({@link #VERSION_MASK}) — версия кодека (0 — сериализация Java),
+ * старшие — флаги дополнительных возможностей, например {@link #FLAG_DEFLATE}. Сервер отвечает
+ * принятой версией и теми из запрошенных флагов, которые поддерживает; приветствие без флагов
+ * понимается как раньше, а старый сервер на приветствие с флагами отвечает отказом.
+ */
+public final class Handshake {
+    /** Магическое число приветствия: "L8BP". */
+    public static final int MAGIC = 0x4C384250;
+    /** Длина тела приветствия: магическое число и версия. */
+    public static final int BODY_LENGTH = 5;
+    /** Длина кадра приветствия вместе с префиксом длины. */
+    public static final int FRAME_LENGTH = 4 + BODY_LENGTH;
+    /** Версия в ответе сервера, означающая отказ от двоичного протокола. */
+    public static final int REJECTED = 0;
+    /** Биты байта версии, в которых записана версия кодека. */
+    public static final int VERSION_MASK = 0x0F;
+    /** Флаг сжатия кадров, см. {@link DeflateCodec}. */
+    public static final int FLAG_DEFLATE = 0x10;
+
+    private Handshake() {
+    }
+
+    /**
+     * Записывает кадр приветствия (префикс длины и тело) с текущей позиции буфера.
+     *
+     * @param buffer буфер, в котором не меньше {@link #FRAME_LENGTH} свободных байт
+     * @param version предлагаемая или принятая версия вместе с флагами
+     */
+    public static void putFrame(ByteBuffer buffer, int version) {
+        buffer.putInt(BODY_LENGTH).putInt(MAGIC).put((byte) version);
+    }
+
+    /**
+     * Проверяет, является ли тело кадра приветствием. Позиция буфера не меняется.
+     *
+     * @param body тело кадра без префикса длины
+     * @return байт версии из приветствия или -1, если это обычный кадр
+     */
+    public static int parse(ByteBuffer body) {
+        if (body.remaining() != BODY_LENGTH || body.getInt(body.position()) != MAGIC) {
+            return -1;
+        }
+        return body.get(body.position() + 4) & 0xFF;
+    }
+
+    /** @return версия кодека из байта версии приветствия */
+    public static int version(int hello) {
+        return hello & VERSION_MASK;
+    }
+
+    /** @return флаги из байта версии приветствия */
+    public static int flags(int hello) {
+        return hello & ~VERSION_MASK;
+    }
+
+    /**
+     * @param codec согласованный кодек
+     * @param flags принятые флаги
+     * @return кодек соединения с учётом флагов
+     */
+    public static WireCodec withFlags(WireCodec codec, int flags) {
+        return (flags & FLAG_DEFLATE) != 0 ? DeflateCodec.over(codec) : codec;
+    }
+
+    /**
+     * @param version версия, которую предложил клиент
+     * @return кодек, которым сервер будет пользоваться для этой версии, или null, если версия не поддерживается
+     */
+    public static WireCodec codecFor(int version) {
+        return version == BinaryCodec.VERSION ? BinaryCodec.INSTANCE : null;
+    }
+}
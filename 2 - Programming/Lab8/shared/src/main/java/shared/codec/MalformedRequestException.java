@@ -0,0 +1,21 @@
+package shared.codec;
+
+import java.io.IOException;
+
+/**
+ * Запрос не удалось разобрать, но его номер уже прочитан: сервер отвечает ошибкой с этим номером,
+ * и клиент завершает именно то ожидание, которое относится к испорченному запросу.
+ */
+public class MalformedRequestException extends IOException {
+    private final long requestId;
+
+    public MalformedRequestException(long requestId, String message, Throwable cause) {
+        super(message, cause);
+        this.requestId = requestId;
+    }
+
+    /** @return номер запроса из заголовка кадра */
+    public long getRequestId() {
+        return requestId;
+    }
+}
@@ -0,0 +1,66 @@
+package shared.codec;
+
+import shared.dto.Request;
+import shared.dto.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Кодек по умолчанию: стандартная сериализация Java через {@link ObjectOutputStream}.
+ * Используется, если клиент не договорился о двоичном протоколе.
+ */
+public final class SerializationCodec implements WireCodec {
+    public static final SerializationCodec INSTANCE = new SerializationCodec();
+
+    private SerializationCodec() {
+    }
+
+    @Override
+    public String name() {
+        return "serialization";
+    }
+
+    @Override
+    public void writeRequest(Request request, OutputStream out) throws IOException {
+        writeObject(request, out);
+    }
+
+    @Override
+    public Request readRequest(InputStream in) throws IOException {
+        return readObject(in, Request.class);
+    }
+
+    @Override
+    public void writeResponse(Response response, OutputStream out) throws IOException {
+        writeObject(response, out);
+    }
+
+    @Override
+    public Response readResponse(InputStream in) throws IOException {
+        return readObject(in, Response.class);
+    }
+
+    private static void writeObject(Object object, OutputStream out) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(object);
+        oos.flush();
+    }
+
+    private static <T> T readObject(InputStream in, Class<T> type) throws IOException {
+        Object obj;
+        try {
+            obj = new ObjectInputStream(in).readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Неизвестный класс: " + e.getMessage(), e);
+        }
+        if (!type.isInstance(obj)) {
+            throw new IOException("Ожидался " + type.getSimpleName() + ", получен "
+                    + (obj == null ? "null" : obj.getClass().getName()));
+        }
+        return type.cast(obj);
+    }
+}
@@ -0,0 +1,26 @@
+package shared.codec;
+
+import shared.dto.Request;
+import shared.dto.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Формат тела кадра: как {@link Request} и {@link Response} превращаются в байты и обратно.
+ * Префикс длины кадра пишет и читает транспорт, кодек работает только с телом.
+ * Кодек соединения выбирается при подключении, см. {@link Handshake}.
+ */
+public interface WireCodec {
+    /** @return имя кодека для журналов */
+    String name();
+
+    void writeRequest(Request request, OutputStream out) throws IOException;
+
+    Request readRequest(InputStream in) throws IOException;
+
+    void writeResponse(Response response, OutputStream out) throws IOException;
+
+    Response readResponse(InputStream in) throws IOException;
+}
@@ -0,0 +1,55 @@
+package shared.dto;
+
+import shared.model.Person;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Изменение коллекции с номером версии, после которого коллекция получила этот номер.
+ * Версии идут подряд, поэтому клиент применяет только события новее своей версии.
+ */
+public class ChangeEvent implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public enum Kind {
+        ADDED,
+        UPDATED,
+        REMOVED
+    }
+
+    private final long version;
+    private final Kind kind;
+    private final long id;
+    /** Новое состояние объекта; null для {@link Kind#REMOVED}. */
+    private final Person person;
+
+    public ChangeEvent(long version, Kind kind, long id, Person person) {
+        this.version = version;
+        this.kind = kind;
+        this.id = id;
+        this.person = person;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Person getPerson() {
+        return person;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{version=" + version + ", " + kind + " id=" + id + '}';
+    }
+}
@@ -19,5 +19,9 @@ public enum CommandType {
     PRINT_ASCENDING,
     CHECK_ID,
     REGISTRATION,
-    AUTHENTICATE;
+    AUTHENTICATE,
+    ADD_BATCH,
+    SUBSCRIBE,
+    UPDATE_BATCH,
+    REMOVE_BATCH;
 }
@@ -6,6 +6,10 @@ public class Request implements Serializable {
     private static final long serialVersionUID = 1L;
     private CommandType type;
     private final Object[] args;
+    /** Номер запроса в соединении; сервер возвращает его в ответе, поэтому ответы могут приходить в любом порядке. */
+    private long requestId;
+    /** Версия коллекции, которая уже есть у клиента (0 — нет); изменяющие команды вернут изменения после неё. */
+    private long knownVersion;
 
 
     public Request(CommandType type, Object[] args) {
@@ -31,11 +35,28 @@ public class Request implements Serializable {
         return args;
     }
 
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(long requestId) {
+        this.requestId = requestId;
+    }
+
+    public long getKnownVersion() {
+        return knownVersion;
+    }
+
+    public void setKnownVersion(long knownVersion) {
+        this.knownVersion = knownVersion;
+    }
+
 
     @Override
     public String toString() {
         return "Request{" +
                 "type=" + type +
+                ", requestId=" + requestId +
                 ", args=" + args +
                 '}';
     }
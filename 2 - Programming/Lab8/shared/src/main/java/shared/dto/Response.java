@@ -39,6 +39,18 @@ public class Response implements Serializable {
 
     private ArrayList<String> desk = new ArrayList<>();
 
+    /** Номер запроса, на который дан ответ (0, если запрос не удалось разобрать). */
+    private long requestId;
+
+    /** Версия коллекции, до которой доводят {@link #people} или {@link #changes}. */
+    private long version;
+
+    /**
+     * Изменения коллекции после версии, известной клиенту. Если не null, {@link #people} не передаётся:
+     * клиент применяет события к своей копии. Если клиент слишком отстал, вместо них приходит полный снимок.
+     */
+    private ArrayList<ChangeEvent> changes;
+
     /* ---------- Конструкторы ---------- */
 
     /** Пустой конструктор для десериализации */
@@ -65,6 +77,10 @@ public class Response implements Serializable {
         return people;
     }
 
+    public void setPersons(LinkedList<Person> people) {
+        this.people = people;
+    }
+
 
 
     public Response(ResponseStatus respStatus, String message, CommandType respType) {
@@ -142,10 +158,38 @@ public class Response implements Serializable {
             this.data = data;
         }
 
+        public long getRequestId () {
+            return requestId;
+        }
+
+        public void setRequestId (long requestId){
+            this.requestId = requestId;
+        }
+
+        public long getVersion () {
+            return version;
+        }
+
+        public void setVersion (long version){
+            this.version = version;
+        }
+
+        public ArrayList<ChangeEvent> getChanges () {
+            return changes;
+        }
+
+        public void setChanges (ArrayList<ChangeEvent> changes){
+            this.changes = changes;
+        }
+
         public Info getInfo() {
         return info;
     }
 
+        public void setInfo (Info info){
+            this.info = info;
+        }
+
         public CommandType getType () {
             return respType;
         }
@@ -155,6 +199,7 @@ public class Response implements Serializable {
             return "Response{" +
                     "status=" + respStatus +
                     "type=" + respType +
+                    ", requestId=" + requestId +
                     ", message='" + message + '\'' +
                     ", data=" + data +
                     '}';
@@ -163,4 +208,8 @@ public class Response implements Serializable {
     public ArrayList<String> getCommandCollection() {
             return desk;
     }
+
+    public void setCommandCollection(ArrayList<String> desk) {
+            this.desk = desk;
+    }
 }